@@ -0,0 +1,103 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of dispatching on the class of a node: finds the type of every literal, reference
+ * and operation of "rules-10000" through a chain of instanceof tests, as the Checker does, and
+ * through ASTVisitor double dispatch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private final List<Expression> expressions = new ArrayList<>();
+
+    private static final ASTVisitor<ExpressionType> types = new ASTVisitor<>() {
+        @Override
+        public ExpressionType visitNode(ASTNode node) {
+            return ExpressionType.UNDEFINED;
+        }
+        @Override
+        public ExpressionType visitColorLiteral(ColorLiteral literal) {
+            return ExpressionType.COLOR;
+        }
+        @Override
+        public ExpressionType visitPixelLiteral(PixelLiteral literal) {
+            return ExpressionType.PIXEL;
+        }
+        @Override
+        public ExpressionType visitPercentageLiteral(PercentageLiteral literal) {
+            return ExpressionType.PERCENTAGE;
+        }
+        @Override
+        public ExpressionType visitScalarLiteral(ScalarLiteral literal) {
+            return ExpressionType.SCALAR;
+        }
+        @Override
+        public ExpressionType visitBoolLiteral(BoolLiteral literal) {
+            return ExpressionType.BOOL;
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(Workloads.load("rules-10000"));
+        collect(pipeline.getAST().root);
+    }
+
+    private void collect(ASTNode node) {
+        if (node instanceof Expression) {
+            expressions.add((Expression) node);
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            collect(node.getChild(i));
+        }
+    }
+
+    @Benchmark
+    public int instanceofChain() {
+        int sum = 0;
+        for (Expression expression : expressions) {
+            sum += typeOf(expression).ordinal();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int visitor() {
+        int sum = 0;
+        for (Expression expression : expressions) {
+            sum += expression.accept(types).ordinal();
+        }
+        return sum;
+    }
+
+    private static ExpressionType typeOf(Expression expression) {
+        if (expression instanceof ColorLiteral) {
+            return ExpressionType.COLOR;
+        } else if (expression instanceof PixelLiteral) {
+            return ExpressionType.PIXEL;
+        } else if (expression instanceof PercentageLiteral) {
+            return ExpressionType.PERCENTAGE;
+        } else if (expression instanceof ScalarLiteral) {
+            return ExpressionType.SCALAR;
+        } else if (expression instanceof BoolLiteral) {
+            return ExpressionType.BOOL;
+        }
+        return ExpressionType.UNDEFINED;
+    }
+}
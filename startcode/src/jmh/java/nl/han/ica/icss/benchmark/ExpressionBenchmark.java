@@ -0,0 +1,80 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.VariableAssignment;
+import nl.han.ica.icss.transforms.CompiledExpression;
+import nl.han.ica.icss.transforms.Evaluator;
+import nl.han.ica.icss.transforms.ExpressionCompiler;
+import nl.han.ica.icss.transforms.ExpressionVM;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates the same expressions by walking the tree (Evaluator.evaluate) and by running
+ * them compiled on the ExpressionVM. The expressions are those of 1000 global variables,
+ * long +/-/* chains referring to earlier ones.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+
+    private final List<Expression> expressions = new ArrayList<>();
+    private final List<CompiledExpression> compiled = new ArrayList<>();
+    private Evaluator evaluator;
+    private ExpressionVM vm;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String source = new WorkloadGenerator(42).setRules(0).setGlobals(1000)
+                .setExpressionLength(8).setVariableDensity(0.5).generate();
+
+        //Evaluating assignments replaces their expressions, so the Evaluator gets its own copy
+        evaluator = new Evaluator();
+        for (ASTNode node : checked(source)) {
+            evaluator.applyTopLevel(node);
+        }
+
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        vm = new ExpressionVM();
+        vm.openScope();
+        for (ASTNode node : checked(source)) {
+            VariableAssignment assignment = (VariableAssignment) node;
+            expressions.add(assignment.expression);
+            CompiledExpression expression = compiler.compile(assignment.expression);
+            compiled.add(expression);
+            vm.assign(assignment.name.slot, vm.run(expression));
+        }
+    }
+
+    private static List<ASTNode> checked(String source) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        pipeline.check();
+        return new ArrayList<>(pipeline.getAST().root.body);
+    }
+
+    @Benchmark
+    public void treeWalk(Blackhole blackhole) {
+        for (Expression expression : expressions) {
+            blackhole.consume(evaluator.evaluate(expression));
+        }
+    }
+
+    @Benchmark
+    public void vm(Blackhole blackhole) {
+        for (CompiledExpression expression : compiled) {
+            blackhole.consume(vm.run(expression));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.generator.FragmentCache;
+import nl.han.ica.icss.generator.Generator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates CSS from an evaluated AST with and without a FragmentCache, on stylesheets with
+ * all different rule bodies ("rules-N") and with repeated ones ("theme-N").
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratorBenchmark {
+
+    @Param({"rules-10000", "theme-10000"})
+    public String workload;
+
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(Workloads.load(workload));
+        pipeline.check();
+        pipeline.transform();
+        ast = pipeline.getAST();
+    }
+
+    @Benchmark
+    public String generate() {
+        return new Generator().generate(ast);
+    }
+
+    //A new cache every time, as for a single compile
+    @Benchmark
+    public String generateWithFragments() {
+        return new Generator(new FragmentCache()).generate(ast);
+    }
+}
@@ -0,0 +1,63 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ParserPool;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares SLL-first parsing (with LL fallback) against plain LL parsing, and building the
+ * AST from a parse tree against building it directly while parsing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"level3", "rules-1000", "rules-10000"})
+    public String workload;
+
+    @Param({"true", "false"})
+    public boolean sllFirst;
+
+    private String source;
+    private ParserPool parsers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = Workloads.load(workload);
+        parsers = new ParserPool(sllFirst);
+    }
+
+    //Parse tree only, so the prediction mode is all that differs
+    @Benchmark
+    public ParseTree parseTree() {
+        ParseTree tree = parsers.parse(CharStreams.fromString(source), new BaseErrorListener());
+        parsers.release();
+        return tree;
+    }
+
+    @Benchmark
+    public AST parseTreeThenWalk() {
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parsers.parse(CharStreams.fromString(source), new BaseErrorListener()));
+        parsers.release();
+        return listener.getAST();
+    }
+
+    @Benchmark
+    public AST parseAST() {
+        AST ast = parsers.parseAST(CharStreams.fromString(source), new BaseErrorListener());
+        parsers.release();
+        return ast;
+    }
+}
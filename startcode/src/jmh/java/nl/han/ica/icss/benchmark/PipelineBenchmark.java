@@ -0,0 +1,145 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.FusedCompiler;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.transforms.EvaluatedStylesheet;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every Pipeline stage separately, so the stage that dominates can be read
+ * from one report. Scaling curves come from the size parameter:
+ *
+ *   mvn -Pbenchmark compile exec:exec -Djmh.args="PipelineBenchmark -prof gc -rf json"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Input {
+        @Param({"level0", "level1", "level2", "level3", "rules-1000", "rules-10000", "rules-100000"})
+        public String workload;
+
+        public String source;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            source = Workloads.load(workload);
+        }
+    }
+
+    //Parsed once; checking does not change the AST, so it can be repeated on it
+    @State(Scope.Benchmark)
+    public static class Parsed {
+        public Pipeline pipeline;
+
+        @Setup(Level.Trial)
+        public void setUp(Input input) {
+            pipeline = new Pipeline();
+            pipeline.parseString(input.source);
+        }
+    }
+
+    //Transform rewrites the AST in place, so every invocation needs a fresh, checked one
+    @State(Scope.Thread)
+    public static class Checked {
+        public Pipeline pipeline;
+
+        @Setup(Level.Invocation)
+        public void setUp(Input input) {
+            pipeline = new Pipeline();
+            pipeline.parseString(input.source);
+            pipeline.check();
+        }
+    }
+
+    //For the stages after parsing, which rewrite the AST, a fresh parse every invocation
+    @State(Scope.Thread)
+    public static class ParsedFresh {
+        public Pipeline pipeline;
+
+        @Setup(Level.Invocation)
+        public void setUp(Input input) {
+            pipeline = new Pipeline();
+            pipeline.parseString(input.source);
+        }
+    }
+
+    //Evaluate leaves the AST as it is, so it is checked once
+    @State(Scope.Benchmark)
+    public static class CheckedOnce {
+        public AST ast;
+
+        @Setup(Level.Trial)
+        public void setUp(Input input) {
+            Pipeline pipeline = new Pipeline();
+            pipeline.parseString(input.source);
+            pipeline.check();
+            ast = pipeline.getAST();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Transformed {
+        public Pipeline pipeline;
+
+        @Setup(Level.Trial)
+        public void setUp(Input input) {
+            pipeline = new Pipeline();
+            pipeline.parseString(input.source);
+            pipeline.check();
+            pipeline.transform();
+        }
+    }
+
+    @Benchmark
+    public AST parse(Input input) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(input.source);
+        return pipeline.getAST();
+    }
+
+    @Benchmark
+    public boolean check(Parsed parsed) {
+        return parsed.pipeline.check();
+    }
+
+    @Benchmark
+    public AST transform(Checked checked) {
+        checked.pipeline.transform();
+        return checked.pipeline.getAST();
+    }
+
+    @Benchmark
+    public EvaluatedStylesheet evaluate(CheckedOnce checked) {
+        return new Evaluator().evaluate(checked.ast);
+    }
+
+    //Everything after parsing: stage by stage, and fused into one walk
+    @Benchmark
+    public String checkTransformGenerate(ParsedFresh parsed) {
+        parsed.pipeline.check();
+        parsed.pipeline.transform();
+        return parsed.pipeline.generate();
+    }
+
+    @Benchmark
+    public String fused(Parsed parsed) throws IOException {
+        StringBuilder css = new StringBuilder();
+        new FusedCompiler().compile(parsed.pipeline.getAST(), css);
+        return css.toString();
+    }
+
+    @Benchmark
+    public String generate(Transformed transformed) {
+        return transformed.pipeline.generate();
+    }
+}
@@ -0,0 +1,49 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.Template;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a themed variant of level3 plus a "rules-100" workload: by compiling the source
+ * with the variant's values, and by rendering a Template with them as overrides.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateBenchmark {
+
+    private String source;
+    private Template template;
+    private Map<String, Literal> overrides;
+    private final Pipeline pipeline = new Pipeline();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = Workloads.load("level3") + Workloads.load("rules-100");
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        pipeline.check();
+        template = new Template(pipeline.getAST());
+        overrides = Map.of("LinkColor", new ColorLiteral("#00ff00"), "ParWidth", new PixelLiteral(640));
+    }
+
+    @Benchmark
+    public String compile() {
+        return pipeline.compile(source.replace("#ff0000", "#00ff00").replace("500px", "640px")).getCss();
+    }
+
+    @Benchmark
+    public String render() {
+        return template.render(overrides);
+    }
+}
@@ -0,0 +1,46 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Input stylesheets for the benchmarks. A workload is either one of the bundled
+ * example files ("level0" .. "level3"), "rules-N", a stylesheet with N style rules made by the
+ * WorkloadGenerator, or "theme-N", N style rules sharing 50 different bodies.
+ */
+public class Workloads {
+
+    public static String load(String name) {
+        if (name.startsWith("rules-")) {
+            return rules(Integer.parseInt(name.substring("rules-".length())));
+        }
+        if (name.startsWith("theme-")) {
+            return theme(Integer.parseInt(name.substring("theme-".length())));
+        }
+        return resource(name + ".icss");
+    }
+
+    private static String resource(String resource) {
+        try (InputStream in = Workloads.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown workload: " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Fixed seed, so every run and every fork measures the same input
+    private static String rules(int count) {
+        return new WorkloadGenerator(42).setRules(count).generate();
+    }
+
+    private static String theme(int count) {
+        return new WorkloadGenerator(42).setRules(count).setDistinctBodies(50).generate();
+    }
+}
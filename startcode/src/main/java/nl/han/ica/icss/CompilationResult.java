@@ -0,0 +1,37 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of Pipeline.compile: the AST as far as it got, the errors of the stage
+ * that failed and the generated CSS, which is only present when there were no errors
+ * and the CSS was not written to an output of the caller.
+ */
+public class CompilationResult {
+
+    private final AST ast;
+    private final List<String> errors;
+    private final String css;
+
+    public CompilationResult(AST ast, List<String> errors, String css) {
+        this.ast = ast;
+        this.errors = Collections.unmodifiableList(List.copyOf(errors));
+        this.css = css;
+    }
+
+    public AST getAST() {
+        return ast;
+    }
+    public List<String> getErrors() {
+        return errors;
+    }
+    public String getCss() {
+        return css;
+    }
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+}
@@ -0,0 +1,276 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.PropertyRegistry;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Values;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks, evaluates and generates a parsed stylesheet in a single walk over its AST, for
+ * callers that only need the CSS or the errors. Every expression is typed and evaluated at
+ * once, on Values, and every stylerule is written to the output as soon as it has been walked
+ * without errors, where Pipeline.compile walks the tree once for every stage.
+ *
+ * The CSS and the errors are those of Pipeline.compile. Errors are set on the nodes, as the
+ * Checker does, and only collected from the AST when there are any. Branches of if clauses
+ * that are not taken are checked but not generated. The AST is not evaluated and its variable
+ * references are not resolved. One FusedCompiler is meant for one thread.
+ *
+ * As with the StreamingCompiler, the output is incomplete when errors are returned: the
+ * rules before the first error have been written, and nothing of the rule with the error or
+ * of the rules after it.
+ */
+public class FusedCompiler {
+
+    //The value of a variable that is not in scope
+    private static final long UNBOUND = Values.pack(-1, 0);
+    private static final long TRUE = Values.pack(Values.BOOL, 1);
+
+    private final PropertyRegistry properties;
+
+    //The values of the variables in scope by SymbolTable id, grown on demand
+    private long[] values;
+    //The values replaced by assignments in the open scopes, so they can be restored when their scope ends
+    private int[] undoIds;
+    private long[] undoValues;
+    private int undoCount;
+    private int[] scopeStarts;
+    private int scopes;
+    private boolean failed;
+    //Per nesting depth of if clauses: the CSS of the if clauses of a body, which comes after its declarations
+    private final List<StringBuilder> deferred = new ArrayList<>();
+    //The CSS of the current stylerule
+    private final StringBuilder rule = new StringBuilder();
+
+    public FusedCompiler() {
+        this(PropertyRegistry.getDefault());
+    }
+
+    public FusedCompiler(PropertyRegistry properties) {
+        this.properties = properties;
+    }
+
+    //Writes the CSS of ast to output and returns the errors
+    public List<String> compile(AST ast, Appendable output) throws IOException {
+        reset();
+
+        openScope();
+        for (ASTNode node : ast.root.body) {
+            if (node instanceof Stylerule) {
+                //After an error the rest is only checked
+                compileStylerule((Stylerule) node, failed ? null : output);
+            } else if (node instanceof VariableAssignment) {
+                compileVariableAssignment((VariableAssignment) node);
+            }
+        }
+        closeScope();
+
+        List<String> errors = new ArrayList<>();
+        if (failed) {
+            for (SemanticError e : ast.getErrors()) {
+                errors.add(e.toString());
+            }
+        }
+        return errors;
+    }
+
+    private void reset() {
+        values = new long[64];
+        Arrays.fill(values, UNBOUND);
+        undoIds = new int[16];
+        undoValues = new long[16];
+        undoCount = 0;
+        scopeStarts = new int[8];
+        scopes = 0;
+        failed = false;
+    }
+
+    //The rule is written to rule first and goes to out only when it has no errors
+    private void compileStylerule(Stylerule stylerule, Appendable out) throws IOException {
+        StringBuilder css = out == null ? null : rule;
+        if (css != null) {
+            css.setLength(0);
+            css.append(stylerule.selectors.get(0).toString())
+                    .append(" {\n");
+        }
+        openScope();
+        compileBody(stylerule.body, css, 0);
+        closeScope();
+        if (css != null && !failed) {
+            css.append("}\n\n");
+            out.append(css);
+        }
+    }
+
+    /*
+     Checks and evaluates a body and, unless out is null, generates it: its declarations in
+     order, then the contents of the taken branches of its if clauses, as the Evaluator leaves them.
+     */
+    private void compileBody(List<ASTNode> body, Appendable out, int depth) throws IOException {
+        StringBuilder later = null;
+        if (out != null) {
+            if (depth == deferred.size()) {
+                deferred.add(new StringBuilder());
+            }
+            later = deferred.get(depth);
+        }
+
+        for (ASTNode node : body) {
+            if (node instanceof Declaration) {
+                compileDeclaration((Declaration) node, out);
+            } else if (node instanceof VariableAssignment) {
+                compileVariableAssignment((VariableAssignment) node);
+            } else if (node instanceof IfClause) {
+                compileIfClause((IfClause) node, later, depth);
+            }
+        }
+
+        if (out != null) {
+            out.append(later);
+            later.setLength(0);
+        }
+    }
+
+    private void compileDeclaration(Declaration declaration, Appendable out) throws IOException {
+        long value = compileExpression(declaration.expression);
+
+        int property = declaration.property.id;
+        if (!properties.allows(property, ExpressionType.values()[Values.type(value)])) {
+            setError(declaration, properties.getMessage(property));
+        }
+
+        if (out != null) {
+            out.append("  ")
+                    .append(declaration.property.name)
+                    .append(": ");
+            Generator.appendValue(value, out);
+            out.append(";\n");
+        }
+    }
+
+    private void compileVariableAssignment(VariableAssignment variableAssignment) {
+        declare(variableAssignment.name.id, compileExpression(variableAssignment.expression));
+    }
+
+    //Both branches are checked, in scopes of their own; only the taken one goes to later
+    private void compileIfClause(IfClause ifClause, StringBuilder later, int depth) throws IOException {
+        long condition = compileExpression(ifClause.conditionalExpression);
+        if (Values.type(condition) != Values.BOOL) {
+            setError(ifClause, "Not a boolean");
+        }
+        boolean isTrue = condition == TRUE;
+
+        openScope();
+        compileBody(ifClause.body, isTrue ? later : null, depth + 1);
+        closeScope();
+
+        if (ifClause.elseClause != null) {
+            openScope();
+            compileBody(ifClause.elseClause.body, isTrue ? null : later, depth + 1);
+            closeScope();
+        }
+    }
+
+    //The value of an expression; its type is the one the Checker gives it
+    private long compileExpression(Expression expression) {
+        if (expression instanceof Literal) {
+            long value = Values.of((Literal) expression);
+            if (value != Values.UNDEFINED) {
+                return value;
+            }
+        } else if (expression instanceof VariableReference) {
+            return compileVariableReference((VariableReference) expression);
+        } else if (expression instanceof Operation) {
+            Operation operation = (Operation) expression;
+            return compileOperation(operation, compileExpression(operation.lhs), compileExpression(operation.rhs));
+        }
+        setError(expression, "Not a valid expression");
+        return Values.UNDEFINED;
+    }
+
+    private long compileVariableReference(VariableReference variableReference) {
+        long value = variableReference.id < values.length ? values[variableReference.id] : UNBOUND;
+        if (value == UNBOUND) {
+            setError(variableReference, "Variable reference '" + variableReference.name + "' not found.");
+            return Values.UNDEFINED;
+        }
+        return value;
+    }
+
+    //The rules of Checker.checkOperation, on the types of the values
+    private long compileOperation(Operation operation, long left, long right) {
+        int type1 = Values.type(left);
+        int type2 = Values.type(right);
+
+        if (type1 == Values.COLOR || type1 == Values.BOOL || type2 == Values.COLOR || type2 == Values.BOOL) {
+            setError(operation, "Not a color operation");
+            return Values.UNDEFINED;
+        }
+
+        if (operation instanceof AddOperation || operation instanceof SubtractOperation) {
+            if (type1 == type2 && (type1 == Values.PIXEL || type1 == Values.PERCENTAGE || type1 == Values.SCALAR)) {
+                return operation instanceof AddOperation ? Values.add(left, right) : Values.subtract(left, right);
+            }
+            setError(operation, "Not a same type");
+            return Values.UNDEFINED;
+        }
+
+        if (type1 != Values.SCALAR && type2 != Values.SCALAR) {
+            setError(operation, "Not a scalar operation included");
+            return Values.UNDEFINED;
+        }
+
+        if (operation instanceof MultiplyOperation) {
+            return Values.multiply(left, right);
+        }
+        setError(operation, "Not a defined operation");
+        return Values.UNDEFINED;
+    }
+
+    private void setError(ASTNode node, String description) {
+        node.setError(description);
+        failed = true;
+    }
+
+    private void openScope() {
+        if (scopes == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, scopes * 2);
+        }
+        scopeStarts[scopes++] = undoCount;
+    }
+
+    private void closeScope() {
+        scopes--;
+        while (undoCount > scopeStarts[scopes]) {
+            undoCount--;
+            values[undoIds[undoCount]] = undoValues[undoCount];
+        }
+    }
+
+    private void declare(int id, long value) {
+        //Ids are bounded by the names in use, not by this array
+        if (id >= values.length) {
+            int length = values.length;
+            values = Arrays.copyOf(values, Math.max(id + 1, length * 2));
+            Arrays.fill(values, length, values.length, UNBOUND);
+        }
+        if (undoCount == undoIds.length) {
+            undoIds = Arrays.copyOf(undoIds, undoCount * 2);
+            undoValues = Arrays.copyOf(undoValues, undoCount * 2);
+        }
+        undoIds[undoCount] = id;
+        undoValues[undoCount] = values[id];
+        undoCount++;
+        values[id] = value;
+    }
+}
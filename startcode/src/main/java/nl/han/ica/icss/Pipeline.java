@@ -2,35 +2,77 @@ package nl.han.ica.icss;
 
 import nl.han.ica.icss.ast.AST;
 import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.PropertyRegistry;
 import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.FragmentCache;
 import nl.han.ica.icss.generator.Generator;
-import nl.han.ica.icss.parser.ASTListener;
-import nl.han.ica.icss.parser.ICSSLexer;
-import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.ParserPool;
+import nl.han.ica.icss.transforms.ConstantFolder;
 import nl.han.ica.icss.transforms.Evaluator;
+import nl.han.ica.icss.workload.WorkloadGenerator;
 import org.antlr.v4.runtime.*;
-import org.antlr.v4.runtime.atn.ATNConfigSet;
-import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
 
-public class Pipeline implements ANTLRErrorListener {
+/**
+ * Runs the compiler stages. The step by step methods (parseString, check, transform and
+ * generate) keep their state in this object and are meant for the GUI. compile runs all
+ * stages without touching that state, so one Pipeline can serve concurrent callers.
+ */
+public class Pipeline {
+
+    private static final int WARM_UP_ROUNDS = 10;
+    private static final ParserPool parsers = new ParserPool();
 
     private AST ast;
     private boolean parsed = false;
     private boolean checked = false;
     private boolean transformed = false;
     private List<String> errors;
+    private final FragmentCache fragments;
+    private boolean fused = false;
+    private PropertyRegistry properties = PropertyRegistry.getDefault();
 
     public Pipeline() {
+        this(null);
+    }
+
+    /*
+     With a FragmentCache, the generated CSS of a stylerule body is reused for every later body
+     with the same declarations, also across compiles. This pays off for stylesheets that repeat
+     their rule bodies, such as generated themes, and costs time on stylesheets that do not.
+     */
+    public Pipeline(FragmentCache fragments) {
+        this.fragments = fragments;
         errors = new ArrayList<>();
     }
 
+    /*
+     In fused mode compile checks, evaluates and generates in one walk with a FusedCompiler,
+     instead of a walk per stage. The CSS and errors are the same, but the AST of the result is
+     not evaluated, and no FragmentCache is used. compile(input, output) then writes each rule
+     as it goes, so output holds the rules before the first error when there are errors. Set it
+     before the Pipeline is shared.
+     */
+    public Pipeline setFused(boolean fused) {
+        this.fused = fused;
+        return this;
+    }
+
+    //The properties the Checker accepts; set it before the Pipeline is shared
+    public Pipeline setProperties(PropertyRegistry properties) {
+        this.properties = properties;
+        return this;
+    }
+
+    public PropertyRegistry getProperties() {
+        return properties;
+    }
+
     public AST getAST() {
         return ast;
     }
@@ -47,47 +89,94 @@ public class Pipeline implements ANTLRErrorListener {
         return transformed;
     }
 
-    public void parseString(String input) {
-
-        //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
-        ICSSLexer lexer = new ICSSLexer(inputStream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(this);
-        errors.clear();
+    public CompilationResult compile(String input) {
+        StringBuilder css = new StringBuilder();
         try {
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            CompilationResult result = compile(input, css);
+            return result.isSuccess() ? new CompilationResult(result.getAST(), result.getErrors(), css.toString()) : result;
+        } catch (IOException e) {
+            //A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            //Parse (with Antlr's generated parser)
-            ICSSParser parser = new ICSSParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(this);
+    /*
+     Like compile, but writes the CSS to the given destination instead of returning it. Nothing
+     is written when there are errors, except in fused mode. The result holds no CSS.
+     */
+    public CompilationResult compile(String input, Appendable output) throws IOException {
+        List<String> errors = new ArrayList<>();
 
-            ParseTree parseTree = parser.stylesheet();
+        AST ast = parse(input, errors);
+        if (!errors.isEmpty()) {
+            return new CompilationResult(ast, errors, null);
+        }
 
-            //Extract AST from the Antlr parse tree
-            ASTListener listener = new ASTListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, parseTree);
+        if (fused) {
+            return new CompilationResult(ast, new FusedCompiler(properties).compile(ast, output), null);
+        }
 
-            this.ast = listener.getAST();
+        (new Checker(properties)).check(ast);
+        for (SemanticError e : ast.getErrors()) {
+            errors.add(e.toString());
+        }
+        if (!errors.isEmpty()) {
+            return new CompilationResult(ast, errors, null);
+        }
+
+        (new ConstantFolder()).apply(ast);
+        (new Evaluator()).apply(ast);
+        (new Generator(fragments)).generate(ast, output);
+        return new CompilationResult(ast, errors, null);
+    }
+
+    public void parseString(String input) {
+        errors.clear();
+        this.ast = parse(input, errors);
+        parsed = errors.isEmpty();
+        checked = transformed = false;
+    }
+
+    private static AST parse(String input, List<String> errors) {
+        SyntaxErrorListener errorListener = new SyntaxErrorListener(errors);
+        try {
+            //Lex and parse (with Antlr's generated lexer and parser, reused per thread),
+            //building the AST while parsing
+            return parsers.parseAST(CharStreams.fromString(input), errorListener);
 
         } catch (RecognitionException e) {
-            this.ast = new AST();
             errors.add(e.getMessage());
 
         } catch (ParseCancellationException e) {
-            this.ast = new AST();
             errors.add("Syntax error");
+
+        } catch (RuntimeException e) {
+            //After syntax errors the AST cannot always be completed; it is not used then anyway
+            if (errors.isEmpty()) {
+                throw e;
+            }
+
+        } finally {
+            parsers.release();
         }
-        parsed = errors.isEmpty();
-        checked = transformed = false;
+        return new AST();
     }
+
+    /*
+     Compiles generated input that uses every language construct, so the parser's prediction
+     DFA is filled and the stages are compiled by the JIT before the first real request.
+     */
+    public void warmUp() {
+        for (long seed = 0; seed < WARM_UP_ROUNDS; seed++) {
+            compile(new WorkloadGenerator(seed).setRules(200).setNestingDepth(3).generate());
+        }
+    }
+
     public boolean check() {
             if(ast == null)
                 return false;
 
-           (new Checker()).check(this.ast);
+           (new Checker(properties)).check(this.ast);
 
             ArrayList<SemanticError> errors = this.ast.getErrors();
             if (!errors.isEmpty()) {
@@ -109,35 +198,32 @@ public class Pipeline implements ANTLRErrorListener {
         if(ast == null)
             return;
 
+        (new ConstantFolder()).apply(ast);
         (new Evaluator()).apply(ast);
 
 
         transformed = errors.isEmpty();
     }
     public String generate() {
-        Generator generator = new Generator();
+        Generator generator = new Generator(fragments);
         return generator.generate(ast);
     }
-
-    //Catch ANTLR errors
-    @Override
-    public void reportAmbiguity(Parser arg0, DFA arg1, int arg2, int arg3,
-                                boolean arg4, BitSet arg5, ATNConfigSet arg6) {
+    public void generate(Appendable output) throws IOException {
+        (new Generator(fragments)).generate(ast, output);
     }
 
-    @Override
-    public void reportAttemptingFullContext(Parser arg0, DFA arg1, int arg2,
-                                            int arg3, BitSet arg4, ATNConfigSet arg5) {
-    }
+    //Catch ANTLR errors, one listener per parse so concurrent parses do not share error lists
+    private static class SyntaxErrorListener extends BaseErrorListener {
+        private final List<String> errors;
 
-    @Override
-    public void reportContextSensitivity(Parser arg0, DFA arg1, int arg2,
-                                         int arg3, int arg4, ATNConfigSet arg5) {
-    }
+        SyntaxErrorListener(List<String> errors) {
+            this.errors = errors;
+        }
 
-    @Override
-    public void syntaxError(Recognizer<?, ?> arg0, Object arg1, int arg2,
-                            int arg3, String arg4, RecognitionException arg5) {
-        errors.add("Syntax error: " + arg4);
+        @Override
+        public void syntaxError(Recognizer<?, ?> arg0, Object arg1, int arg2,
+                                int arg3, String arg4, RecognitionException arg5) {
+            errors.add("Syntax error: " + arg4);
+        }
     }
 }
@@ -0,0 +1,117 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.PropertyRegistry;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a stylesheet of any size in bounded memory. Every top-level statement is
+ * checked, evaluated and written as soon as the parser has finished it, so only the
+ * global variables and the statement at hand are kept; the input is read through
+ * unbuffered streams and no parse tree is built.
+ *
+ * The output is written while reading, so when errors are returned it is incomplete:
+ * nothing is written anymore after the first error.
+ */
+public class StreamingCompiler {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PropertyRegistry properties;
+
+    public StreamingCompiler() {
+        this(PropertyRegistry.getDefault());
+    }
+
+    public StreamingCompiler(PropertyRegistry properties) {
+        this.properties = properties;
+    }
+
+    public List<String> compile(Reader input, Writer output) throws IOException {
+        List<String> errors = new ArrayList<>();
+        Checker checker = new Checker(properties);
+        Evaluator evaluator = new Evaluator();
+        Generator generator = new Generator();
+
+        ASTListener listener = new ASTListener(statement -> {
+            checker.checkTopLevel(statement);
+            for (SemanticError e : AST.getErrors(statement)) {
+                errors.add(e.toString());
+            }
+            if (!errors.isEmpty()) {
+                return;
+            }
+
+            evaluator.applyTopLevel(statement);
+            if (statement instanceof Stylerule) {
+                try {
+                    generator.generate((Stylerule) statement, output);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+
+        BaseErrorListener errorListener = new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                errors.add("Syntax error: " + msg);
+            }
+        };
+
+        //Tokens have to copy their text, the characters are gone once the lexer has moved on
+        ICSSLexer lexer = new ICSSLexer(new UnbufferedCharStream(input, BUFFER_SIZE));
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+
+        ICSSParser parser = new ICSSParser(new UnbufferedTokenStream<>(lexer));
+        parser.setBuildParseTree(false);
+        parser.setErrorHandler(new StreamingErrorStrategy());
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+        parser.addParseListener(listener);
+
+        try {
+            parser.stylesheet();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            //After a syntax error the listener cannot always make sense of what error recovery leaves behind
+            if (errors.isEmpty()) {
+                throw e;
+            }
+        }
+        output.flush();
+        return errors;
+    }
+
+    /*
+     The default strategy quotes the whole input of a failed prediction, which is no longer
+     available in an unbuffered stream. Report the offending token instead.
+     */
+    private static class StreamingErrorStrategy extends DefaultErrorStrategy {
+        @Override
+        protected void reportNoViableAlternative(Parser recognizer, NoViableAltException e) {
+            String msg = "no viable alternative at input " + getTokenErrorDisplay(e.getOffendingToken());
+            recognizer.notifyErrorListeners(e.getOffendingToken(), msg, e);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.CompiledExpression;
+import nl.han.ica.icss.transforms.ExpressionCompiler;
+import nl.han.ica.icss.transforms.ExpressionVM;
+import nl.han.ica.icss.transforms.Values;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A checked stylesheet that can be rendered many times, each time with other values for some
+ * of its global variables, e.g. the colors and sizes of a tenant's theme.
+ *
+ * The AST is compiled once: expressions to CompiledExpressions, selectors and property names
+ * to the text that is printed. Rendering runs those on an ExpressionVM and leaves the AST as it
+ * is, so a variant does not need a parse of its own. The CSS is what Pipeline.compile makes of
+ * the stylesheet with every assignment of an overridden global replaced by the given value.
+ *
+ * The AST must have been checked without errors. A Template can render on several threads at once.
+ */
+public class Template {
+
+    private static final long TRUE = Values.pack(Values.BOOL, 1);
+    //The COLOR token of ICSS.g4
+    private static final Pattern COLOR = Pattern.compile("#[0-9a-f]{6}");
+
+    private final List<Object> statements = new ArrayList<>();
+    //The slots of the global variables by name, and the type of their values
+    private final Map<String, Integer> globals = new HashMap<>();
+    private final int[] globalTypes;
+
+    public Template(AST ast) {
+        if (!ast.getErrors().isEmpty()) {
+            throw new IllegalArgumentException("The stylesheet has errors");
+        }
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        for (ASTNode node : ast.root.body) {
+            if (node instanceof Stylerule) {
+                Stylerule stylerule = (Stylerule) node;
+                statements.add(new Rule(stylerule.selectors.get(0).toString() + " {\n", compileBody(stylerule.body, compiler)));
+            } else if (node instanceof VariableAssignment) {
+                Assignment assignment = compileAssignment((VariableAssignment) node, compiler);
+                globals.put(((VariableAssignment) node).name.name, assignment.slot);
+                statements.add(assignment);
+            }
+        }
+        globalTypes = findGlobalTypes();
+    }
+
+    private List<Object> compileBody(List<ASTNode> body, ExpressionCompiler compiler) {
+        List<Object> items = new ArrayList<>();
+        for (ASTNode node : body) {
+            if (node instanceof Declaration) {
+                Declaration declaration = (Declaration) node;
+                items.add(new Property("  " + declaration.property.name + ": ", compiler.compile(declaration.expression)));
+            } else if (node instanceof VariableAssignment) {
+                items.add(compileAssignment((VariableAssignment) node, compiler));
+            } else if (node instanceof IfClause) {
+                IfClause ifClause = (IfClause) node;
+                items.add(new Condition(compiler.compile(ifClause.conditionalExpression),
+                        compileBody(ifClause.body, compiler),
+                        ifClause.elseClause != null ? compileBody(ifClause.elseClause.body, compiler) : null));
+            }
+        }
+        return items;
+    }
+
+    private static Assignment compileAssignment(VariableAssignment variableAssignment, ExpressionCompiler compiler) {
+        if (variableAssignment.name.slot < 0) {
+            throw new IllegalArgumentException("The stylesheet has not been checked");
+        }
+        return new Assignment(variableAssignment.name.slot, compiler.compile(variableAssignment.expression));
+    }
+
+    //A global assigned values of different types cannot be overridden; it gets UNDEFINED_TYPE
+    private int[] findGlobalTypes() {
+        int slots = 0;
+        for (int slot : globals.values()) {
+            slots = Math.max(slots, slot + 1);
+        }
+        int[] globalTypes = new int[slots];
+        Arrays.fill(globalTypes, -1);
+
+        ExpressionVM vm = new ExpressionVM();
+        vm.openScope();
+        for (Object statement : statements) {
+            if (statement instanceof Assignment) {
+                Assignment assignment = (Assignment) statement;
+                long value = vm.run(assignment.expression);
+                vm.assign(assignment.slot, value);
+                int type = globalTypes[assignment.slot];
+                globalTypes[assignment.slot] = type == -1 || type == Values.type(value) ? Values.type(value) : Values.UNDEFINED_TYPE;
+            }
+        }
+        return globalTypes;
+    }
+
+    public Set<String> getGlobals() {
+        return Collections.unmodifiableSet(globals.keySet());
+    }
+
+    public String render(Map<String, ? extends Literal> overrides) {
+        StringBuilder css = new StringBuilder();
+        try {
+            render(overrides, css);
+        } catch (IOException e) {
+            //A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return css.toString();
+    }
+
+    /*
+     Writes the CSS with the given values for global variables. Throws an
+     IllegalArgumentException, before writing anything, for a name that is not a global
+     variable of the stylesheet, a value of another type than the variable has, or a color
+     that is not written as #rrggbb in lower case, as the parser requires.
+     */
+    public void render(Map<String, ? extends Literal> overrides, Appendable out) throws IOException {
+        new Rendering(overrideValues(overrides)).render(out);
+    }
+
+    //The overriding values by slot; UNDEFINED for globals that keep their own value
+    private long[] overrideValues(Map<String, ? extends Literal> overrides) {
+        long[] values = new long[globalTypes.length];
+        Arrays.fill(values, Values.UNDEFINED);
+        for (Map.Entry<String, ? extends Literal> override : overrides.entrySet()) {
+            Integer slot = globals.get(override.getKey());
+            if (slot == null) {
+                throw new IllegalArgumentException("Global variable '" + override.getKey() + "' not found.");
+            }
+            Literal literal = override.getValue();
+            //Parsed colors match the COLOR token; these come from elsewhere
+            if (literal instanceof ColorLiteral && (((ColorLiteral) literal).value == null
+                    || !COLOR.matcher(((ColorLiteral) literal).value).matches())) {
+                throw new IllegalArgumentException("Variable '" + override.getKey() + "' cannot be "
+                        + ((ColorLiteral) literal).value + ", colors are written as #rrggbb.");
+            }
+            long value = Values.of(literal);
+            if (Values.type(value) == Values.UNDEFINED_TYPE || Values.type(value) != globalTypes[slot]) {
+                throw new IllegalArgumentException("Variable '" + override.getKey() + "' cannot be "
+                        + ExpressionType.values()[Values.type(value)] + ".");
+            }
+            values[slot] = value;
+        }
+        return values;
+    }
+
+    //The state of one render
+    private class Rendering {
+        private final long[] overrides;
+        private final ExpressionVM vm = new ExpressionVM();
+        //Per nesting depth of if clauses: the output of the if clauses of a body, which comes after its declarations
+        private final List<StringBuilder> deferred = new ArrayList<>();
+
+        Rendering(long[] overrides) {
+            this.overrides = overrides;
+        }
+
+        void render(Appendable out) throws IOException {
+            vm.openScope();
+            for (Object statement : statements) {
+                if (statement instanceof Rule) {
+                    Rule rule = (Rule) statement;
+                    out.append(rule.header);
+                    vm.openScope();
+                    renderBody(rule.body, out, 0);
+                    vm.closeScope();
+                    out.append("}\n\n");
+                } else {
+                    Assignment assignment = (Assignment) statement;
+                    long value = overrides[assignment.slot];
+                    vm.assign(assignment.slot, value != Values.UNDEFINED ? value : vm.run(assignment.expression));
+                }
+            }
+            vm.closeScope();
+        }
+
+        /*
+         Like the Evaluator, evaluates the body in order but writes the contents of its if
+         clauses after its own declarations.
+         */
+        private void renderBody(List<Object> body, Appendable out, int depth) throws IOException {
+            if (depth == deferred.size()) {
+                deferred.add(new StringBuilder());
+            }
+            StringBuilder later = deferred.get(depth);
+            for (Object item : body) {
+                if (item instanceof Property) {
+                    Property property = (Property) item;
+                    out.append(property.prefix);
+                    Generator.appendValue(vm.run(property.expression), out);
+                    out.append(";\n");
+                } else if (item instanceof Assignment) {
+                    Assignment assignment = (Assignment) item;
+                    vm.assign(assignment.slot, vm.run(assignment.expression));
+                } else if (item instanceof Condition) {
+                    Condition condition = (Condition) item;
+                    List<Object> branch = vm.run(condition.expression) == TRUE ? condition.body : condition.elseBody;
+                    if (branch != null) {
+                        vm.openScope();
+                        renderBody(branch, later, depth + 1);
+                        vm.closeScope();
+                    }
+                }
+            }
+            out.append(later);
+            later.setLength(0);
+        }
+    }
+
+    private static class Rule {
+        final String header;
+        final List<Object> body;
+
+        Rule(String header, List<Object> body) {
+            this.header = header;
+            this.body = body;
+        }
+    }
+
+    private static class Property {
+        final String prefix;
+        final CompiledExpression expression;
+
+        Property(String prefix, CompiledExpression expression) {
+            this.prefix = prefix;
+            this.expression = expression;
+        }
+    }
+
+    private static class Assignment {
+        final int slot;
+        final CompiledExpression expression;
+
+        Assignment(int slot, CompiledExpression expression) {
+            this.slot = slot;
+            this.expression = expression;
+        }
+    }
+
+    private static class Condition {
+        final CompiledExpression expression;
+        final List<Object> body;
+        final List<Object> elseBody;
+
+        Condition(CompiledExpression expression, List<Object> body, List<Object> elseBody) {
+            this.expression = expression;
+            this.body = body;
+            this.elseBody = elseBody;
+        }
+    }
+}
@@ -24,12 +24,18 @@ public class AST {
         collectErrors(errors,root);
         return errors;
     }
-    private void collectErrors(ArrayList<SemanticError> errors, ASTNode node) {
+    //Errors in a subtree, for nodes that are not (or no longer) part of an AST
+    public static ArrayList<SemanticError> getErrors(ASTNode node) {
+        ArrayList<SemanticError> errors = new ArrayList<>();
+        collectErrors(errors,node);
+        return errors;
+    }
+    private static void collectErrors(ArrayList<SemanticError> errors, ASTNode node) {
 	    if(node.hasError()) {
 	        errors.add(node.getError());
         }
-        for(ASTNode child: node.getChildren()) {
-	        collectErrors(errors,child);
+        for(int i = 0; i < node.getChildCount(); i++) {
+	        collectErrors(errors,node.getChild(i));
         }
     }
 	@Override
@@ -3,7 +3,6 @@ package nl.han.ica.icss.ast;
 import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
-import java.util.List;
 
 public class ASTNode {
 
@@ -24,6 +23,31 @@ public class ASTNode {
     public ArrayList<ASTNode> getChildren() {
         return new ArrayList<>();
     }
+    /*
+     The children of getChildren one by one, without making a list. Traversals of the whole
+     tree use these; a subclass that overrides getChildren overrides these as well.
+     */
+    public int getChildCount() {
+        return 0;
+    }
+    public ASTNode getChild(int index) {
+        throw new IndexOutOfBoundsException(index);
+    }
+    //For nodes with two optional children, such as a name and an expression
+    protected static int getChildCount(ASTNode first, ASTNode second) {
+        return (first != null ? 1 : 0) + (second != null ? 1 : 0);
+    }
+    protected static ASTNode getChild(int index, ASTNode first, ASTNode second) {
+        if (first == null) {
+            index++;
+        }
+        if (index == 0) {
+            return first;
+        } else if (index == 1 && second != null) {
+            return second;
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
     /*
     By implementing this method in a subclass you can easily create AST nodes
       incrementally.
@@ -38,6 +62,11 @@ public class ASTNode {
         return this;
     }
 
+    //Calls the visit method of visitor for the class of this node
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitNode(this);
+    }
+
     public SemanticError getError() {
         return this.error;
     }
@@ -60,9 +89,9 @@ public class ASTNode {
 		builder.append("[");
 		builder.append(getNodeLabel());	
 		builder.append("|");
-		for(ASTNode child : getChildren()) {
-			child.toString(builder);
-		}	
+		for(int i = 0; i < getChildCount(); i++) {
+			getChild(i).toString(builder);
+		}
 		builder.append("]");
 	}
 
@@ -71,12 +100,11 @@ public class ASTNode {
         if(! (o instanceof ASTNode))
             return false;
         //Compare all children
-        List<ASTNode> thisChildren = this.getChildren();
-        List<ASTNode> otherChildren = ((ASTNode) o).getChildren();
-        if(otherChildren.size() != thisChildren.size())
+        ASTNode other = (ASTNode) o;
+        if(other.getChildCount() != this.getChildCount())
             return false;
-        for(int i = 0; i < thisChildren.size(); i++ ) {
-            if(!thisChildren.get(i).equals(otherChildren.get(i))) {
+        for(int i = 0; i < this.getChildCount(); i++ ) {
+            if(!this.getChild(i).equals(other.getChild(i))) {
                 return false;
             }
         }
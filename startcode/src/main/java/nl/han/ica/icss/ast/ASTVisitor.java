@@ -0,0 +1,102 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+/**
+ * A pass over AST nodes by double dispatch: node.accept(visitor) calls the visit method for
+ * the class of the node, so a pass needs no chain of instanceof tests.
+ *
+ * Every visit method falls back to the one for the superclass of its node (visitPixelLiteral
+ * to visitLiteral, visitLiteral to visitExpression, ...), ending in visitNode, which returns
+ * null. A pass only overrides the methods for the nodes it cares about, at the level it needs.
+ * Visiting children is up to the pass.
+ *
+ * It is meant for new passes. The Checker, Evaluator and Generator keep their instanceof
+ * chains, which the JIT inlines and accept calls it cannot (see DispatchBenchmark).
+ */
+public interface ASTVisitor<R> {
+
+    default R visitNode(ASTNode node) {
+        return null;
+    }
+
+    default R visitStylesheet(Stylesheet stylesheet) {
+        return visitNode(stylesheet);
+    }
+    default R visitStylerule(Stylerule stylerule) {
+        return visitNode(stylerule);
+    }
+    default R visitDeclaration(Declaration declaration) {
+        return visitNode(declaration);
+    }
+    default R visitPropertyName(PropertyName propertyName) {
+        return visitNode(propertyName);
+    }
+    default R visitVariableAssignment(VariableAssignment variableAssignment) {
+        return visitNode(variableAssignment);
+    }
+    default R visitIfClause(IfClause ifClause) {
+        return visitNode(ifClause);
+    }
+    default R visitElseClause(ElseClause elseClause) {
+        return visitNode(elseClause);
+    }
+
+    default R visitExpression(Expression expression) {
+        return visitNode(expression);
+    }
+    default R visitVariableReference(VariableReference variableReference) {
+        return visitExpression(variableReference);
+    }
+
+    default R visitOperation(Operation operation) {
+        return visitExpression(operation);
+    }
+    default R visitAddOperation(AddOperation operation) {
+        return visitOperation(operation);
+    }
+    default R visitSubtractOperation(SubtractOperation operation) {
+        return visitOperation(operation);
+    }
+    default R visitMultiplyOperation(MultiplyOperation operation) {
+        return visitOperation(operation);
+    }
+
+    default R visitLiteral(Literal literal) {
+        return visitExpression(literal);
+    }
+    default R visitPixelLiteral(PixelLiteral literal) {
+        return visitLiteral(literal);
+    }
+    default R visitPercentageLiteral(PercentageLiteral literal) {
+        return visitLiteral(literal);
+    }
+    default R visitScalarLiteral(ScalarLiteral literal) {
+        return visitLiteral(literal);
+    }
+    default R visitColorLiteral(ColorLiteral literal) {
+        return visitLiteral(literal);
+    }
+    default R visitBoolLiteral(BoolLiteral literal) {
+        return visitLiteral(literal);
+    }
+
+    default R visitSelector(Selector selector) {
+        return visitNode(selector);
+    }
+    default R visitClassSelector(ClassSelector selector) {
+        return visitSelector(selector);
+    }
+    default R visitIdSelector(IdSelector selector) {
+        return visitSelector(selector);
+    }
+    default R visitTagSelector(TagSelector selector) {
+        return visitSelector(selector);
+    }
+}
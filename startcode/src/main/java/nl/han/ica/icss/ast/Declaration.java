@@ -21,6 +21,10 @@ public class Declaration extends ASTNode {
 	public String getNodeLabel() {
 	    return "Declaration";
 	}
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitDeclaration(this);
+	}
 
 	@Override
 	public ArrayList<ASTNode> getChildren() {
@@ -33,6 +37,14 @@ public class Declaration extends ASTNode {
 		return children;
 	}
 	@Override
+	public int getChildCount() {
+		return getChildCount(property, expression);
+	}
+	@Override
+	public ASTNode getChild(int index) {
+		return getChild(index, property, expression);
+	}
+	@Override
 	public ASTNode addChild(ASTNode child) {
 		if(child instanceof PropertyName) {
 			property = (PropertyName) child;
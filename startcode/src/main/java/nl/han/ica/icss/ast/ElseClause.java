@@ -19,12 +19,24 @@ public class ElseClause extends ASTNode{
         return "Else_Clause";
     }
     @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitElseClause(this);
+    }
+    @Override
     public ArrayList<ASTNode> getChildren() {
         ArrayList<ASTNode> children = new ArrayList<>();
         children.addAll(body);
 
         return children;
     }
+    @Override
+    public int getChildCount() {
+        return body.size();
+    }
+    @Override
+    public ASTNode getChild(int index) {
+        return body.get(index);
+    }
 
     @Override
     public ASTNode addChild(ASTNode child) {
@@ -29,6 +29,10 @@ public class IfClause extends ASTNode {
         return "If_Clause";
     }
     @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitIfClause(this);
+    }
+    @Override
     public ArrayList<ASTNode> getChildren() {
         ArrayList<ASTNode> children = new ArrayList<>();
         children.add(conditionalExpression);
@@ -38,6 +42,21 @@ public class IfClause extends ASTNode {
 
         return children;
     }
+    @Override
+    public int getChildCount() {
+        return 1 + body.size() + (elseClause != null ? 1 : 0);
+    }
+    @Override
+    public ASTNode getChild(int index) {
+        if (index == 0) {
+            return conditionalExpression;
+        } else if (index <= body.size()) {
+            return body.get(index - 1);
+        } else if (index == body.size() + 1 && elseClause != null) {
+            return elseClause;
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
 
     @Override
     public ASTNode addChild(ASTNode child) {
@@ -16,6 +16,14 @@ public abstract class Operation extends Expression {
             children.add(rhs);
         return children;
     }
+    @Override
+    public int getChildCount() {
+        return getChildCount(lhs, rhs);
+    }
+    @Override
+    public ASTNode getChild(int index) {
+        return getChild(index, lhs, rhs);
+    }
 
     @Override
     public ASTNode addChild(ASTNode child) {
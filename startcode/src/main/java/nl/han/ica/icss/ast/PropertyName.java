@@ -3,18 +3,42 @@ package nl.han.ica.icss.ast;
 public class PropertyName extends ASTNode {
 
     public String name;
+    //  The id of name in the SymbolTable
+    public int id;
 
     public PropertyName() {
-        super();
-        name = "undefined";
+        this("undefined");
     }
     public PropertyName(String name) {
         super();
-        this.name = name;
+        SymbolTable.Symbol symbol;
+        String shared;
+        do {
+            symbol = SymbolTable.symbol(name);
+            shared = symbol.get();
+        } while (shared == null);
+        this.name = shared;
+        this.id = symbol.id;
     }
 
     @Override
     public String getNodeLabel() {
         return "Property: (" + name + ")";
     }
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitPropertyName(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return id == ((PropertyName) o).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
 }
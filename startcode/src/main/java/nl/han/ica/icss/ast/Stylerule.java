@@ -29,6 +29,14 @@ public class Stylerule extends ASTNode {
 
 		return children;
 	}
+	@Override
+	public int getChildCount() {
+		return selectors.size() + body.size();
+	}
+	@Override
+	public ASTNode getChild(int index) {
+		return index < selectors.size() ? selectors.get(index) : body.get(index - selectors.size());
+	}
 
     @Override
     public ASTNode addChild(ASTNode child) {
@@ -38,6 +46,10 @@ public class Stylerule extends ASTNode {
         	body.add(child);
 
 		return this;
+    }
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitStylerule(this);
     }
 	@Override
 	public boolean equals(Object o) {
@@ -0,0 +1,147 @@
+package nl.han.ica.icss.ast;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the identifiers of ICSS: variable names and property names. Every distinct name gets
+ * a small int id and one shared String, so nodes can be compared and looked up by id and a large
+ * stylesheet holds every name once.
+ *
+ * The table is shared by all parses, on all threads, so ids of different ASTs can be compared.
+ * It holds its names weakly: a name that no node, registry or cache refers to any more is
+ * dropped and its id is given to a later name. The table therefore grows with the names in use,
+ * not with every name ever compiled. Whoever keeps an id must keep its shared String as well,
+ * as the nodes do.
+ *
+ * Looking up a name that is already in the table takes no lock; only adding one does.
+ */
+public final class SymbolTable {
+
+    //Every Symbol is its own key; get finds it through a Lookup, which compares names
+    private static final ConcurrentHashMap<Object, Symbol> symbols = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<String> collected = new ReferenceQueue<>();
+    private static volatile Symbol[] names = new Symbol[64];
+    private static int size;
+    //Ids of collected names, to be given out again
+    private static int[] free = new int[16];
+    private static int freeCount;
+
+    private SymbolTable() { }
+
+    //The id of name; it stays the id of name only while the shared String of name is kept
+    public static int intern(String name) {
+        return symbol(name).id;
+    }
+
+    /*
+     The shared String for name, to keep with its id. Interning the shared String again gives
+     the same id for as long as it is kept.
+     */
+    public static String share(String name) {
+        String shared;
+        do {
+            shared = symbol(name).get();
+        } while (shared == null);
+        return shared;
+    }
+
+    /*
+     The Symbol of name, with the id and the shared String, from a single lookup. Its String can
+     still be collected before the caller has kept it; get then returns null and the caller
+     looks name up again, which makes name itself the shared String.
+     */
+    static Symbol symbol(String name) {
+        Symbol symbol = symbols.get(new Lookup(name));
+        if (symbol != null && symbol.get() != null) {
+            return symbol;
+        }
+        return add(name);
+    }
+
+    private static synchronized Symbol add(String name) {
+        releaseCollected();
+        //Another thread may have added it since the lookup
+        Symbol symbol = symbols.get(new Lookup(name));
+        if (symbol != null && symbol.get() != null) {
+            return symbol;
+        }
+
+        int id;
+        if (freeCount > 0) {
+            id = free[--freeCount];
+        } else {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            id = size++;
+        }
+        //The table keeps only weak references; name itself is shared from now on
+        symbol = new Symbol(name, id);
+        names[id] = symbol;
+        symbols.put(symbol, symbol);
+        return symbol;
+    }
+
+    private static void releaseCollected() {
+        Symbol symbol;
+        while ((symbol = (Symbol) collected.poll()) != null) {
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            symbols.remove(symbol);
+            names[symbol.id] = null;
+            free[freeCount++] = symbol.id;
+        }
+    }
+
+    //The name of an id in use; null for an id of which the name has been collected
+    public static String name(int id) {
+        Symbol symbol = names[id];
+        return symbol == null ? null : symbol.get();
+    }
+
+    //The number of ids given out and not collected yet
+    public static synchronized int size() {
+        releaseCollected();
+        return size - freeCount;
+    }
+
+    //A name in the table; equal only to itself, hashed as its name
+    static final class Symbol extends WeakReference<String> {
+        final int id;
+        private final int hash;
+
+        Symbol(String name, int id) {
+            super(name, collected);
+            this.id = id;
+            this.hash = name.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    //Finds the Symbol of a name in the map: ConcurrentHashMap.get calls equals on its argument
+    private static final class Lookup {
+        private final String name;
+
+        Lookup(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Symbol && name.equals(((Symbol) o).get());
+        }
+    }
+}
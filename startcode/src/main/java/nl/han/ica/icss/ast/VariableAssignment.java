@@ -16,6 +16,10 @@ public class VariableAssignment extends ASTNode {
 	public String getNodeLabel() {
 		return "VariableAssignment (" + name.name + ")";
 	}
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitVariableAssignment(this);
+	}
 
 	@Override
 	public ASTNode addChild(ASTNode child) {
@@ -38,6 +42,14 @@ public class VariableAssignment extends ASTNode {
 			children.add(expression);
 		return children;
 	}
+	@Override
+	public int getChildCount() {
+		return getChildCount(name, expression);
+	}
+	@Override
+	public ASTNode getChild(int index) {
+		return getChild(index, name, expression);
+	}
 
 	@Override
 	public boolean equals(Object o) {
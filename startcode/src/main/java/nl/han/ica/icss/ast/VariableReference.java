@@ -1,20 +1,36 @@
 package nl.han.ica.icss.ast;
 
-import java.util.Objects;
-
 public class VariableReference extends Expression {
 
 	public String name;
+	//	The id of name in the SymbolTable
+	public int id;
+
+	//	Set by the Checker: the number of scopes out from the innermost one where the variable lives,
+	//	and its slot in that scope; -1 while unresolved. For the name of an assignment the depth is 0.
+	public int depth = -1;
+	public int slot = -1;
 	
 	public VariableReference(String name) {
 		super();
-		this.name = name;
+		SymbolTable.Symbol symbol;
+		String shared;
+		do {
+			symbol = SymbolTable.symbol(name);
+			shared = symbol.get();
+		} while (shared == null);
+		this.name = shared;
+		this.id = symbol.id;
 	}
 
 	@Override
 	public String getNodeLabel() {
 		return "VariableReference (" + name + ")";
 	}
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitVariableReference(this);
+	}
 
 	@Override
 	public boolean equals(Object o) {
@@ -22,12 +38,11 @@ public class VariableReference extends Expression {
 		if (o == null || getClass() != o.getClass()) return false;
 		if (!super.equals(o)) return false;
 		VariableReference that = (VariableReference) o;
-		return Objects.equals(name, that.name);
+		return id == that.id;
 	}
 
 	@Override
 	public int hashCode() {
-
-		return Objects.hash(name);
+		return id;
 	}
 }
@@ -1,5 +1,6 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
 
 import java.util.Objects;
@@ -17,6 +18,10 @@ public class PercentageLiteral extends Literal {
     public String getNodeLabel() {
         return "Percentage literal (" + value + ")";
     }
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitPercentageLiteral(this);
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -1,5 +1,6 @@
 package nl.han.ica.icss.ast.operations;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Operation;
 
 public class AddOperation extends Operation {
@@ -8,4 +9,8 @@ public class AddOperation extends Operation {
     public String getNodeLabel() {
         return "Add";
     }
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitAddOperation(this);
+    }
 }
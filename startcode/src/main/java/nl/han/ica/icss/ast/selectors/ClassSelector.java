@@ -1,5 +1,6 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -15,6 +16,10 @@ public class ClassSelector extends Selector {
     public String getNodeLabel() {
         return "ClassSelector " + cls;
     }
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitClassSelector(this);
+    }
 
     public String toString() {
         return cls;
@@ -0,0 +1,292 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.checker.PropertyRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Remembers the outcome of compiling a source text, so compiling the same text again is a lookup.
+ *
+ * Entries are keyed by the SHA-256 hash of the source, the compiler VERSION and the property
+ * registry, and hold the errors and generated CSS, not the AST. The least recently used
+ * entries are evicted when the total size exceeds the limit. With a directory, every entry is
+ * also kept in a file there, and the entries of a previous run are loaded on construction,
+ * newest first, as far as the limit allows. Files of another VERSION are deleted then.
+ *
+ * The cache can be shared between threads; the compilation itself happens outside the lock.
+ */
+public class CompilationCache {
+
+    //Part of every key and file: raise it when a change to the compiler changes its CSS or errors
+    private static final int VERSION = 2;
+    private static final String EXTENSION = ".cache";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    //Temporary files older than this are left by a run that failed; younger ones may be in use
+    private static final long ORPHAN_MILLIS = 60 * 60 * 1000;
+
+    private final long maxBytes;
+    private final Path directory;
+    //Hashed into every key, so results of another compiler or registry are not found;
+    //the salt of the last registry used
+    private PropertyRegistry saltRegistry;
+    private String salt;
+
+    //In least recently used order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    public CompilationCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.directory = null;
+    }
+
+    public CompilationCache(long maxBytes, Path directory) throws IOException {
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /*
+     Returns the cached result for input, or compiles it with pipeline and caches that.
+     The result never has an AST.
+     */
+    public CompilationResult compile(Pipeline pipeline, String input) {
+        String key = hash(saltFor(pipeline.getProperties()), input);
+        CompilationResult cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompilationResult result = pipeline.compile(input);
+        put(key, result.getErrors(), result.getCss());
+        return new CompilationResult(null, result.getErrors(), result.getCss());
+    }
+
+    private synchronized String saltFor(PropertyRegistry properties) {
+        if (properties != saltRegistry) {
+            salt = hash(VERSION + "\n" + properties);
+            saltRegistry = properties;
+        }
+        return salt;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+    public synchronized long getMisses() {
+        return misses;
+    }
+    public synchronized int size() {
+        return entries.size();
+    }
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private synchronized CompilationResult get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new CompilationResult(null, entry.errors, entry.css);
+    }
+
+    private void put(String key, List<String> errors, String css) {
+        Entry entry = new Entry(errors, css);
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                bytes -= previous.size;
+            }
+            bytes += entry.size;
+            evict(evicted);
+        }
+
+        if (directory != null) {
+            try {
+                //Another thread may have evicted the entry already, which leaves a stale file at worst
+                write(key, entry);
+                for (String old : evicted) {
+                    Files.deleteIfExists(fileFor(old));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void evict(List<String> evicted) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            bytes -= eldest.getValue().size;
+            evicted.add(eldest.getKey());
+            iterator.remove();
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.collect(Collectors.toList());
+        }
+        long orphaned = System.currentTimeMillis() - ORPHAN_MILLIS;
+        for (Path file : files) {
+            if (file.toString().endsWith(TEMPORARY_EXTENSION) && lastModified(file) < orphaned) {
+                Files.deleteIfExists(file);
+            }
+        }
+        files = files.stream().filter(path -> path.toString().endsWith(EXTENSION))
+                    .sorted(Comparator.comparing(CompilationCache::lastModified).reversed())
+                .collect(Collectors.toList());
+
+        List<String> keys = new ArrayList<>();
+        List<Entry> loaded = new ArrayList<>();
+        long total = 0;
+        for (Path file : files) {
+            Entry entry = read(file);
+            if (entry == null || total + entry.size > maxBytes) {
+                Files.delete(file);
+                continue;
+            }
+            total += entry.size;
+            String name = file.getFileName().toString();
+            keys.add(name.substring(0, name.length() - EXTENSION.length()));
+            loaded.add(entry);
+        }
+
+        //Oldest first, so the newest are the last to be evicted
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            entries.put(keys.get(i), loaded.get(i));
+        }
+        bytes = total;
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    /*
+     File format: VERSION, the number of errors, every error, then whether there is CSS and the CSS
+     as UTF-8 bytes. The CSS does not go through writeUTF, which is limited to 64 KB.
+     */
+    private void write(String key, Entry entry) throws IOException {
+        Path temporary = Files.createTempFile(directory, key, TEMPORARY_EXTENSION);
+        try {
+            try (OutputStream stream = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(VERSION);
+                out.writeInt(entry.errors.size());
+                for (String error : entry.errors) {
+                    out.writeUTF(error);
+                }
+                out.writeBoolean(entry.css != null);
+                if (entry.css != null) {
+                    byte[] css = entry.css.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(css.length);
+                    out.write(css);
+                }
+            }
+            Files.move(temporary, fileFor(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            //Only left when writing or moving failed
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    //Returns null for a file that cannot be read or is of another VERSION
+    private static Entry read(Path file) {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            int count = in.readInt();
+            List<String> errors = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                errors.add(in.readUTF());
+            }
+            String css = null;
+            if (in.readBoolean()) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                css = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new Entry(errors, css);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    //The hash of the parts one after the other, without joining them into one String first
+    public static String hash(String... parts) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                sha.update(part.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] digest = sha.digest();
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        final List<String> errors;
+        final String css;
+        //Estimated memory use: two bytes per character plus some overhead
+        final long size;
+
+        Entry(List<String> errors, String css) {
+            this.errors = List.copyOf(errors);
+            this.css = css;
+            long characters = css == null ? 0 : css.length();
+            for (String error : errors) {
+                characters += error.length();
+            }
+            this.size = 2 * characters + 64 + 32L * errors.size();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.SymbolTable;
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The properties a declaration may set, and the types their values may have.
+ *
+ * Properties are stored by their SymbolTable id, with the allowed ExpressionTypes as a bitmask,
+ * so checking a declaration is an array load and a bit test. The default registry is read from
+ * icss-properties.properties on the classpath; other registries can be loaded from any file in
+ * that format or built with register.
+ *
+ * Register everything before handing a registry to Checkers; it is not changed after that and
+ * can then be shared between threads.
+ */
+public class PropertyRegistry {
+
+    public static final String UNKNOWN_PROPERTY = "Geef een geldig property mee.";
+
+    private static final String RESOURCE = "icss-properties.properties";
+    private static final String MESSAGE_SUFFIX = ".message";
+    private static PropertyRegistry defaultRegistry;
+
+    //Indexed by property id: the allowed types as bits (1 << ordinal), 0 for unknown properties
+    private int[] allowed = new int[0];
+    private String[] messages = new String[0];
+    //The shared names, which keep their ids in the SymbolTable
+    private String[] names = new String[0];
+
+    public static synchronized PropertyRegistry getDefault() {
+        if (defaultRegistry == null) {
+            try (InputStream in = PropertyRegistry.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+                if (in == null) {
+                    throw new IllegalStateException(RESOURCE + " not found");
+                }
+                Properties properties = new Properties();
+                properties.load(in);
+                defaultRegistry = load(properties);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return defaultRegistry;
+    }
+
+    public static PropertyRegistry load(Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+        return load(properties);
+    }
+
+    private static PropertyRegistry load(Properties properties) {
+        PropertyRegistry registry = new PropertyRegistry();
+        for (String property : properties.stringPropertyNames()) {
+            if (property.endsWith(MESSAGE_SUFFIX)) {
+                continue;
+            }
+            String[] names = properties.getProperty(property).split(",");
+            ExpressionType[] types = new ExpressionType[names.length];
+            for (int i = 0; i < names.length; i++) {
+                types[i] = ExpressionType.valueOf(names[i].trim());
+            }
+            registry.register(property, properties.getProperty(property + MESSAGE_SUFFIX), types);
+        }
+        return registry;
+    }
+
+    /*
+     Adds a property, or replaces its types. The message is the error for a value of another
+     type; with null a message naming the allowed types is used.
+     */
+    public PropertyRegistry register(String property, String message, ExpressionType... types) {
+        String name = SymbolTable.share(property);
+        int id = SymbolTable.intern(name);
+        if (id >= allowed.length) {
+            allowed = Arrays.copyOf(allowed, Math.max(id + 1, allowed.length * 2));
+            messages = Arrays.copyOf(messages, allowed.length);
+            names = Arrays.copyOf(names, allowed.length);
+        }
+        names[id] = name;
+        int bits = 0;
+        for (ExpressionType type : types) {
+            bits |= 1 << type.ordinal();
+        }
+        allowed[id] = bits;
+        messages[id] = message != null ? message : defaultMessage(property, types);
+        return this;
+    }
+
+    public boolean isKnown(int property) {
+        return property < allowed.length && allowed[property] != 0;
+    }
+
+    public boolean allows(int property, ExpressionType type) {
+        return property < allowed.length && (allowed[property] & (1 << type.ordinal())) != 0;
+    }
+
+    //The error for a declaration of property with a value it does not allow
+    public String getMessage(int property) {
+        return isKnown(property) ? messages[property] : UNKNOWN_PROPERTY;
+    }
+
+    //Every property with its types and message, sorted by name, so equal registries give equal text
+    @Override
+    public String toString() {
+        List<String> lines = new ArrayList<>();
+        for (int id = 0; id < allowed.length; id++) {
+            if (allowed[id] != 0) {
+                lines.add(names[id] + " = " + allowed[id] + " " + messages[id]);
+            }
+        }
+        Collections.sort(lines);
+        return String.join("\n", lines);
+    }
+
+    private static String defaultMessage(String property, ExpressionType[] types) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                names.append(i == types.length - 1 ? " of " : ", ");
+            }
+            names.append(types[i].name().toLowerCase());
+        }
+        return "Bij " + property + " moet er een " + names + " meegegeven worden.";
+    }
+}
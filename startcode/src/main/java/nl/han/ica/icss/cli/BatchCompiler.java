@@ -0,0 +1,241 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.StreamingCompiler;
+import nl.han.ica.icss.cache.CompilationCache;
+import nl.han.ica.icss.checker.PropertyRegistry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless compiler: compiles every .icss file below a directory to a .css file,
+ * in parallel on a work-stealing pool. All workers share one Pipeline through its compile method.
+ * With a cache directory, files that compiled before with the same content are not compiled again.
+ *
+ * With a properties file, declarations are checked against the properties in it instead of the default ones.
+ *
+ * Usage: BatchCompiler <input dir> [<output dir>] [--threads <n>] [--cache <dir>] [--cache-size <MB>] [--properties <file>]
+ */
+public class BatchCompiler {
+
+    //Files above this size are compiled in streaming mode, so memory does not grow with them
+    private static final long STREAMING_THRESHOLD = 16 * 1024 * 1024;
+
+    private final Path inputDirectory;
+    private final Path outputDirectory;
+    private final int threads;
+    private final Pipeline pipeline;
+    private final CompilationCache cache;
+    private final PropertyRegistry properties;
+    //Only changed by tests, to compile small files in streaming mode
+    long streamingThreshold = STREAMING_THRESHOLD;
+
+    public BatchCompiler(Path inputDirectory, Path outputDirectory, int threads) {
+        this(inputDirectory, outputDirectory, threads, null);
+    }
+
+    public BatchCompiler(Path inputDirectory, Path outputDirectory, int threads, CompilationCache cache) {
+        this(inputDirectory, outputDirectory, threads, cache, PropertyRegistry.getDefault());
+    }
+
+    public BatchCompiler(Path inputDirectory, Path outputDirectory, int threads, CompilationCache cache,
+                         PropertyRegistry properties) {
+        this.inputDirectory = inputDirectory;
+        this.outputDirectory = outputDirectory;
+        this.threads = threads;
+        this.cache = cache;
+        this.properties = properties;
+        //Only the CSS is needed, so the stages run fused; a target that failed is deleted
+        this.pipeline = new Pipeline().setFused(true).setProperties(properties);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> paths = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path cacheDirectory = null;
+        long cacheSize = 256;
+        PropertyRegistry properties = PropertyRegistry.getDefault();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-size") && i + 1 < args.length) {
+                cacheSize = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--properties") && i + 1 < args.length) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(args[++i]), StandardCharsets.UTF_8)) {
+                    properties = PropertyRegistry.load(reader);
+                }
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty() || paths.size() > 2) {
+            System.err.println("Usage: BatchCompiler <input dir> [<output dir>] [--threads <n>] [--cache <dir>] [--cache-size <MB>] [--properties <file>]");
+            System.exit(2);
+        }
+
+        Path input = Paths.get(paths.get(0));
+        Path output = paths.size() > 1 ? Paths.get(paths.get(1)) : input;
+        CompilationCache cache = cacheDirectory == null ? null
+                : new CompilationCache(cacheSize * 1024 * 1024, cacheDirectory);
+        long start = System.nanoTime();
+        List<FileResult> results = new BatchCompiler(input, output, threads, cache, properties).compileAll();
+        boolean success = report(results, System.nanoTime() - start);
+        if (cache != null) {
+            System.out.printf("cache: %d hits, %d misses%n", cache.getHits(), cache.getMisses());
+        }
+        System.exit(success ? 0 : 1);
+    }
+
+    public List<FileResult> compileAll() throws IOException, InterruptedException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(inputDirectory)) {
+            files = walk.filter(path -> path.toString().endsWith(".icss") && Files.isRegularFile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        List<Callable<FileResult>> tasks = new ArrayList<>();
+        for (Path file : files) {
+            tasks.add(() -> compile(file));
+        }
+
+        if (cache == null) {
+            //With a cache, most files are never compiled
+            pipeline.warmUp();
+        }
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        try {
+            List<FileResult> results = new ArrayList<>();
+            for (Future<FileResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private FileResult compile(Path file) {
+        long start = System.nanoTime();
+        List<String> errors = new ArrayList<>();
+        try {
+            if (Files.size(file) > streamingThreshold) {
+                errors.addAll(compileStreaming(file));
+            } else {
+                errors.addAll(compileInMemory(file));
+            }
+        } catch (IOException | RuntimeException e) {
+            errors.add(e.toString());
+        }
+        return new FileResult(file, System.nanoTime() - start, errors);
+    }
+
+    private List<String> compileInMemory(Path file) throws IOException {
+        String input = Files.readString(file, StandardCharsets.UTF_8);
+        Path target = outputFor(file);
+        Files.createDirectories(target.getParent());
+
+        CompilationResult result = null;
+        boolean written = false;
+        try {
+            if (cache != null) {
+                result = cache.compile(pipeline, input);
+                if (result.isSuccess()) {
+                    Files.writeString(target, result.getCss(), StandardCharsets.UTF_8);
+                }
+            } else {
+                try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                    result = pipeline.compile(input, writer);
+                }
+            }
+            written = result.isSuccess();
+        } finally {
+            //Do not leave incomplete or stale output behind, also when compiling or writing threw
+            if (!written) {
+                Files.deleteIfExists(target);
+            }
+        }
+        return result.getErrors();
+    }
+
+    private List<String> compileStreaming(Path file) throws IOException {
+        Path target = outputFor(file);
+        Files.createDirectories(target.getParent());
+
+        List<String> errors = null;
+        try {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                 Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                errors = new StreamingCompiler(properties).compile(reader, writer);
+            }
+        } finally {
+            //Do not leave incomplete output behind, also when compiling threw
+            if (errors == null || !errors.isEmpty()) {
+                Files.deleteIfExists(target);
+            }
+        }
+        return errors;
+    }
+
+    private Path outputFor(Path file) {
+        String name = inputDirectory.relativize(file).toString();
+        return outputDirectory.resolve(name.substring(0, name.length() - ".icss".length()) + ".css");
+    }
+
+    //Prints the per file timings and a summary, returns whether everything compiled
+    static boolean report(List<FileResult> results, long wallNanos) {
+        int failed = 0;
+        long totalNanos = 0;
+        for (FileResult result : results) {
+            totalNanos += result.nanos;
+            System.out.printf("%-6s %9.2f ms  %s%n", result.isSuccess() ? "OK" : "FAILED",
+                    result.nanos / 1e6, result.file);
+            if (!result.isSuccess()) {
+                failed++;
+                for (String error : result.errors) {
+                    System.out.println("         " + error);
+                }
+            }
+        }
+        System.out.printf("%d files, %d compiled, %d failed in %.2f ms (%.2f ms compile time)%n",
+                results.size(), results.size() - failed, failed, wallNanos / 1e6, totalNanos / 1e6);
+        return failed == 0;
+    }
+
+    public static class FileResult {
+        public final Path file;
+        public final long nanos;
+        public final List<String> errors;
+
+        public FileResult(Path file, long nanos, List<String> errors) {
+            this.file = file;
+            this.nanos = nanos;
+            this.errors = errors;
+        }
+
+        public boolean isSuccess() {
+            return errors.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.transforms.Values;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Remembers the generated CSS of evaluated stylerule bodies, so a body that occurs again is
+ * appended as one String instead of being rendered declaration by declaration. Equal bodies
+ * share a single String.
+ *
+ * Bodies are compared by the property names and literal values of their declarations, the
+ * only parts the Generator prints, which are copied into the key. The selector is not part
+ * of the key: in generated themes the same body mostly appears under different selectors.
+ *
+ * Holds at most capacity bodies and evicts the least recently used one beyond that.
+ * Can be shared between Generators, also on different threads.
+ */
+public class FragmentCache {
+
+    private final Map<Body, String> fragments;
+    private long hits;
+    private long misses;
+
+    public FragmentCache() {
+        this(4096);
+    }
+
+    public FragmentCache(int capacity) {
+        fragments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Body, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    //The fragment for body, rendered with render when it is not cached yet
+    String get(List<? extends ASTNode> body, Function<List<? extends ASTNode>, String> render) {
+        Body key = new Body(body);
+        synchronized (this) {
+            String fragment = fragments.get(key);
+            if (fragment != null) {
+                hits++;
+                return fragment;
+            }
+            misses++;
+        }
+        String fragment = render.apply(body);
+        synchronized (this) {
+            fragments.put(key, fragment);
+        }
+        return fragment;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+    public synchronized long getMisses() {
+        return misses;
+    }
+    public synchronized int size() {
+        return fragments.size();
+    }
+
+    /*
+     The structural key of a body: the property names and packed Values of its declarations,
+     copied out of the body, so a key does not change or keep the AST alive when the body does.
+     Colors are compared by RGB value; the parser and Values only make lower case #rrggbb.
+     */
+    private static class Body {
+        final String[] properties;
+        final long[] values;
+        final int hash;
+
+        Body(List<? extends ASTNode> body) {
+            int count = 0;
+            for (ASTNode node : body) {
+                if (node instanceof Declaration) {
+                    count++;
+                }
+            }
+            properties = new String[count];
+            values = new long[count];
+            int i = 0;
+            for (ASTNode node : body) {
+                if (node instanceof Declaration) {
+                    Declaration declaration = (Declaration) node;
+                    properties[i] = declaration.property.name;
+                    values[i] = printedValue(declaration.expression);
+                    i++;
+                }
+            }
+            hash = 31 * Arrays.hashCode(properties) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Body)) return false;
+            Body that = (Body) o;
+            return hash == that.hash && Arrays.equals(values, that.values) && Arrays.equals(properties, that.properties);
+        }
+
+        //Everything the Generator prints nothing for is UNDEFINED
+        private static long printedValue(Expression expression) {
+            if (!(expression instanceof Literal)) {
+                return Values.UNDEFINED;
+            }
+            long value = Values.of((Literal) expression);
+            return Values.type(value) == Values.BOOL ? Values.UNDEFINED : value;
+        }
+    }
+}
@@ -6,49 +6,187 @@ import nl.han.ica.icss.ast.literals.ColorLiteral;
 import nl.han.ica.icss.ast.literals.PercentageLiteral;
 import nl.han.ica.icss.ast.literals.PixelLiteral;
 import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.transforms.EvaluatedRule;
+import nl.han.ica.icss.transforms.EvaluatedStylesheet;
+import nl.han.ica.icss.transforms.Values;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 public class Generator {
 
+	private final FragmentCache fragments;
+
+	public Generator() {
+		this(null);
+	}
+
+	//	Reuses the rendered body of stylerules with the same declarations as an earlier one
+	public Generator(FragmentCache fragments) {
+		this.fragments = fragments;
+	}
+
 	public String generate(AST ast) {
         StringBuilder string = new StringBuilder();
+		try {
+			generate(ast, string);
+		} catch (IOException e) {
+			//A StringBuilder does not throw
+			throw new UncheckedIOException(e);
+		}
+		return string.toString();
+	}
 
+	/*
+	 Writes the CSS straight to the given destination (a Writer, StringBuilder, ...) instead of
+	 collecting it in a String first, so large outputs are never held in memory as a whole.
+	 */
+	public void generate(AST ast, Appendable out) throws IOException {
 		for (ASTNode node : ast.root.getChildren()) {
-			Stylerule stylerule = (Stylerule) node;
+			generate((Stylerule) node, out);
+		}
+	}
 
-//		Selector
-			string.append(stylerule.selectors.get(0).toString())
+	//	The CSS of a stylesheet evaluated by Evaluator.evaluate; the same as for the AST after Evaluator.apply
+	public String generate(EvaluatedStylesheet stylesheet) {
+		StringBuilder string = new StringBuilder();
+		try {
+			generate(stylesheet, string);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return string.toString();
+	}
+
+	public void generate(EvaluatedStylesheet stylesheet, Appendable out) throws IOException {
+		for (EvaluatedRule rule : stylesheet.rules) {
+			out.append(rule.selectors.get(0).toString())
 					.append(" {\n");
+			appendBody(rule.declarations, out);
+		}
+	}
+
+	//	UTF-8 encoded, e.g. to a FileChannel or SocketChannel
+	public void generate(AST ast, WritableByteChannel channel) throws IOException {
+		Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+		generate(ast, writer);
+		writer.flush();
+	}
+
+	//	A single evaluated stylerule, as it appears in the output of generate
+	public String generate(Stylerule stylerule) {
+		StringBuilder string = new StringBuilder();
+		try {
+			generate(stylerule, string);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return string.toString();
+	}
+
+	public void generate(Stylerule stylerule, Appendable out) throws IOException {
+//		Selector
+		out.append(stylerule.selectors.get(0).toString())
+				.append(" {\n");
+
+		appendBody(stylerule.body, out);
+	}
+
+	private void appendBody(List<? extends ASTNode> body, Appendable out) throws IOException {
+		if (fragments != null) {
+			out.append(fragments.get(body, this::generateBody));
+		} else {
+			appendDeclarations(body, out);
+		}
+	}
 
+	private String generateBody(List<? extends ASTNode> body) {
+		StringBuilder string = new StringBuilder();
+		try {
+			appendDeclarations(body, string);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return string.toString();
+	}
 
+	private void appendDeclarations(List<? extends ASTNode> body, Appendable out) throws IOException {
 //		Declarations
-			for (ASTNode child : stylerule.body) {
-				if (child instanceof Declaration) {
-					Declaration declaration = (Declaration) child;
+		for (ASTNode child : body) {
+			if (child instanceof Declaration) {
+				Declaration declaration = (Declaration) child;
 
-					string.append("  ")
-							.append(declaration.property.name)
-							.append(": ")
-							.append(expressionToString(declaration.expression))
-							.append(";\n");
+				out.append("  ")
+						.append(declaration.property.name)
+						.append(": ");
+				appendExpression(declaration.expression, out);
+				out.append(";\n");
 
-				}
 			}
-			string.append("}\n\n");
 		}
-		return string.toString();
+		out.append("}\n\n");
+	}
+
+	//	A packed value of Values, printed as appendExpression prints its literal; nothing for booleans and undefined values
+	public static void appendValue(long value, Appendable out) throws IOException {
+		switch (Values.type(value)) {
+			case Values.PIXEL:
+				appendInt(Values.value(value), out);
+				out.append("px");
+				break;
+			case Values.PERCENTAGE:
+				appendInt(Values.value(value), out);
+				out.append('%');
+				break;
+			case Values.SCALAR:
+				appendInt(Values.value(value), out);
+				break;
+			case Values.COLOR:
+				out.append('#');
+				for (int shift = 20; shift >= 0; shift -= 4) {
+					out.append(Character.forDigit((Values.value(value) >> shift) & 0xf, 16));
+				}
+				break;
+		}
+	}
+
+	//	Digit by digit, so writing a number to a Writer or channel allocates no String
+	private static void appendInt(int value, Appendable out) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(value);
+			return;
+		}
+		long rest = value;
+		if (rest < 0) {
+			out.append('-');
+			rest = -rest;
+		}
+		long divisor = 1;
+		while (divisor * 10 <= rest) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			out.append((char) ('0' + rest / divisor % 10));
+		}
 	}
 
-	private String expressionToString(Expression expression) {
+	private void appendExpression(Expression expression, Appendable out) throws IOException {
 		if (expression instanceof PixelLiteral) {
-			return ((PixelLiteral) expression).value + "px";
+			appendInt(((PixelLiteral) expression).value, out);
+			out.append("px");
 		} else if (expression instanceof ColorLiteral) {
-			return ((ColorLiteral) expression).value;
+			out.append(((ColorLiteral) expression).value);
 		} else if (expression instanceof PercentageLiteral) {
-			return ((PercentageLiteral) expression).value + "%";
+			appendInt(((PercentageLiteral) expression).value, out);
+			out.append('%');
 		} else if (expression instanceof ScalarLiteral) {
-			return String.valueOf(((ScalarLiteral) expression).value);
+			appendInt(((ScalarLiteral) expression).value, out);
 		}
-		return "";
 	}
 
 
@@ -13,7 +13,9 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import nl.han.ica.icss.CompilationResult;
 import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.incremental.IncrementalCompiler;
 
 import java.io.File;
 import java.io.IOException;
@@ -43,15 +45,18 @@ public class MainGui extends Application {
     private Button checkButton;
     private Button transformButton;
     private Button generateButton;
+    private CheckBox liveCheckBox;
 
     //Model
     private Pipeline pipeline;
+    private IncrementalCompiler incrementalCompiler;
 
 
     @Override
     public void start(Stage stage) {
         //Setup pipeline
         pipeline = new Pipeline();
+        incrementalCompiler = new IncrementalCompiler();
 
         //Setup UI
         stage.setTitle(title);
@@ -95,6 +100,24 @@ public class MainGui extends Application {
             }
         });
 
+        //Live preview recompiles on every edit, the toolbar is not needed then
+        liveCheckBox = new CheckBox("Live preview");
+        liveCheckBox.setPadding(new Insets(0, 0, 0, 20));
+        liveCheckBox.setOnAction(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent e) {
+                updateToolbar();
+                if (liveCheckBox.isSelected()) {
+                    me.preview();
+                }
+            }
+        });
+        inputPane.textProperty().addListener((observable, oldText, newText) -> {
+            if (liveCheckBox.isSelected()) {
+                me.preview();
+            }
+        });
+
         //Create menus
         MenuBar menuBar = new MenuBar();
 
@@ -167,7 +190,7 @@ public class MainGui extends Application {
         //Toolbar
         HBox toolbar = new HBox();
         toolbar.setPadding(new Insets(5, 5, 5, 5));
-        toolbar.getChildren().addAll(new Label("Pipeline: "), parseButton, checkButton, transformButton, generateButton);
+        toolbar.getChildren().addAll(new Label("Pipeline: "), parseButton, checkButton, transformButton, generateButton, liveCheckBox);
         updateToolbar();
 
         BorderPane bottom = new BorderPane();
@@ -238,13 +261,25 @@ public class MainGui extends Application {
         updateToolbar();
     }
 
+    private void preview() {
+        clear();
+        CompilationResult result = incrementalCompiler.compile(inputPane.getText());
+        for (String e : result.getErrors()) {
+            feedbackPane.addLine(e);
+        }
+        if (result.isSuccess()) {
+            outputPane.setText(result.getCss());
+        }
+    }
+
     private void updateToolbar() {
         //Quick and ugly way...
         checkButton.setDisable(true);
         transformButton.setDisable(true);
         generateButton.setDisable(true);
+        parseButton.setDisable(liveCheckBox != null && liveCheckBox.isSelected());
 
-        if (pipeline.isParsed()) {
+        if (pipeline.isParsed() && !parseButton.isDisabled()) {
             checkButton.setDisable(false);
             if (pipeline.isChecked()) {
                 transformButton.setDisable(false);
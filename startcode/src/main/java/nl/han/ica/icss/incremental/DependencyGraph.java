@@ -0,0 +1,263 @@
+package nl.han.ica.icss.incremental;
+
+import nl.han.ica.icss.ast.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Links the global variable assignments of a stylesheet to the statements that use them.
+ *
+ * Statements are added in stylesheet order. A reference to a global is bound to the last
+ * assignment to that name added before its statement, the same assignment the Checker and
+ * Evaluator would find. References to a variable assigned earlier in the same stylerule,
+ * or in an if or else body around them, are local and do not depend on the global.
+ *
+ * Nodes are compared by identity, as ASTNode.equals considers many different nodes equal.
+ */
+public class DependencyGraph {
+
+    private final List<ASTNode> statements = new ArrayList<>();
+    //For every statement, the assignments its global references are bound to
+    private final Map<ASTNode, Map<String, VariableAssignment>> definitions = new IdentityHashMap<>();
+    //For every assignment, the statements referring to it, in stylesheet order
+    private final Map<VariableAssignment, List<ASTNode>> dependents = new IdentityHashMap<>();
+    //The assignment currently visible for every global name
+    private final Map<String, VariableAssignment> globals = new HashMap<>();
+
+    public DependencyGraph() { }
+
+    public DependencyGraph(Stylesheet stylesheet) {
+        for (ASTNode statement : stylesheet.body) {
+            add(statement);
+        }
+    }
+
+    public void add(ASTNode statement) {
+        add(statement, getGlobalNames(statement));
+    }
+
+    /*
+     Adds a statement of which the referenced global names are already known. Used when the
+     names are kept with the statement, so they need not be collected again.
+     */
+    public void add(ASTNode statement, Set<String> names) {
+        Map<String, VariableAssignment> bound = new HashMap<>();
+        for (String name : names) {
+            VariableAssignment definition = globals.get(name);
+            if (definition != null) {
+                bound.put(name, definition);
+                dependents.get(definition).add(statement);
+            }
+        }
+        statements.add(statement);
+        definitions.put(statement, bound);
+
+        if (statement instanceof VariableAssignment) {
+            VariableAssignment assignment = (VariableAssignment) statement;
+            globals.put(assignment.name.name, assignment);
+            dependents.put(assignment, new ArrayList<>());
+        }
+    }
+
+    public List<ASTNode> getStatements() {
+        return statements;
+    }
+
+    //The assignment a global reference to name in statement is bound to, null if there is none
+    public VariableAssignment getDefinition(ASTNode statement, String name) {
+        Map<String, VariableAssignment> bound = definitions.get(statement);
+        return bound == null ? null : bound.get(name);
+    }
+
+    public Map<String, VariableAssignment> getDefinitions(ASTNode statement) {
+        return definitions.getOrDefault(statement, Map.of());
+    }
+
+    //The statements directly referring to assignment
+    public List<ASTNode> getDependents(VariableAssignment assignment) {
+        return dependents.getOrDefault(assignment, List.of());
+    }
+
+    /*
+     All statements that have to be checked and evaluated again when the given assignments
+     change: their direct dependents, and through assignments among those the dependents of
+     those as well. The result is in stylesheet order.
+     */
+    public List<ASTNode> getAffected(Collection<VariableAssignment> changed) {
+        Set<ASTNode> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<VariableAssignment> todo = new ArrayList<>(changed);
+        while (!todo.isEmpty()) {
+            VariableAssignment assignment = todo.remove(todo.size() - 1);
+            for (ASTNode dependent : getDependents(assignment)) {
+                if (affected.add(dependent) && dependent instanceof VariableAssignment) {
+                    todo.add((VariableAssignment) dependent);
+                }
+            }
+        }
+
+        List<ASTNode> ordered = new ArrayList<>();
+        for (ASTNode statement : statements) {
+            if (affected.contains(statement)) {
+                ordered.add(statement);
+            }
+        }
+        return ordered;
+    }
+
+    //The references in the dependents of assignment that are bound to it
+    public List<VariableReference> getReferences(VariableAssignment assignment) {
+        List<VariableReference> references = new ArrayList<>();
+        String name = assignment.name.name;
+        for (ASTNode dependent : getDependents(assignment)) {
+            visitGlobalReferences(dependent, new HashSet<>(), reference -> {
+                if (reference.name.equals(name)) {
+                    references.add(reference);
+                }
+            });
+        }
+        return references;
+    }
+
+    //The declarations whose value uses assignment, directly or through a local variable
+    public List<Declaration> getDeclarations(VariableAssignment assignment) {
+        Set<Declaration> declarations = new LinkedHashSet<>();
+        for (ASTNode dependent : getDependents(assignment)) {
+            if (dependent instanceof Stylerule) {
+                collectDeclarations(((Stylerule) dependent).body, assignment.name.name, declarations);
+            }
+        }
+        return new ArrayList<>(declarations);
+    }
+
+    //The names of the globals statement refers to
+    public static Set<String> getGlobalNames(ASTNode statement) {
+        Set<String> names = new HashSet<>();
+        visitGlobalReferences(statement, new HashSet<>(), reference -> names.add(reference.name));
+        return names;
+    }
+
+    /*
+     Visits the references in statement that are not shadowed by a local assignment before
+     them. An assignment in a body shadows for the rest of that body, including the if bodies
+     in it, as the Checker scopes it.
+     */
+    private static void visitGlobalReferences(ASTNode statement, Set<String> locals, Consumer<VariableReference> visitor) {
+        if (statement instanceof VariableAssignment) {
+            visitExpression(((VariableAssignment) statement).expression, locals, visitor);
+        } else if (statement instanceof Stylerule) {
+            visitBody(((Stylerule) statement).body, locals, visitor);
+        }
+    }
+
+    //The body is a scope of its own: its assignments are added to a copy of locals
+    private static void visitBody(List<ASTNode> body, Set<String> locals, Consumer<VariableReference> visitor) {
+        Set<String> bodyLocals = new HashSet<>(locals);
+        for (ASTNode node : body) {
+            if (node instanceof Declaration) {
+                visitExpression(((Declaration) node).expression, bodyLocals, visitor);
+            } else if (node instanceof VariableAssignment) {
+                visitExpression(((VariableAssignment) node).expression, bodyLocals, visitor);
+                bodyLocals.add(((VariableAssignment) node).name.name);
+            } else if (node instanceof IfClause) {
+                IfClause ifClause = (IfClause) node;
+                visitExpression(ifClause.conditionalExpression, bodyLocals, visitor);
+                visitBody(ifClause.body, bodyLocals, visitor);
+                if (ifClause.elseClause != null) {
+                    visitBody(ifClause.elseClause.body, bodyLocals, visitor);
+                }
+            }
+        }
+    }
+
+    private static void visitExpression(ASTNode expression, Set<String> locals, Consumer<VariableReference> visitor) {
+        if (expression instanceof VariableReference) {
+            VariableReference reference = (VariableReference) expression;
+            if (!locals.contains(reference.name)) {
+                visitor.accept(reference);
+            }
+        } else if (expression != null) {
+            for (int i = 0; i < expression.getChildCount(); i++) {
+                visitExpression(expression.getChild(i), locals, visitor);
+            }
+        }
+    }
+
+    /*
+     Collects the declarations in body that use name. A local assignment that uses name makes
+     its own variable a carrier of the value, so declarations using that count as well.
+     */
+    private static void collectDeclarations(List<ASTNode> body, String name, Set<Declaration> declarations) {
+        Set<String> carriers = new HashSet<>();
+        carriers.add(name);
+        collectDeclarationsUsing(body, carriers, declarations);
+    }
+
+    private static void collectDeclarationsUsing(List<ASTNode> body, Set<String> carriers, Set<Declaration> declarations) {
+        for (ASTNode node : body) {
+            if (node instanceof Declaration) {
+                if (uses(((Declaration) node).expression, carriers)) {
+                    declarations.add((Declaration) node);
+                }
+            } else if (node instanceof VariableAssignment) {
+                VariableAssignment assignment = (VariableAssignment) node;
+                if (uses(assignment.expression, carriers)) {
+                    carriers.add(assignment.name.name);
+                } else {
+                    carriers.remove(assignment.name.name);
+                }
+            } else if (node instanceof IfClause) {
+                IfClause ifClause = (IfClause) node;
+                if (uses(ifClause.conditionalExpression, carriers)) {
+                    //The condition decides which declarations exist at all
+                    collectAll(ifClause.body, declarations);
+                    if (ifClause.elseClause != null) {
+                        collectAll(ifClause.elseClause.body, declarations);
+                    }
+                } else {
+                    collectDeclarationsUsing(ifClause.body, new HashSet<>(carriers), declarations);
+                    if (ifClause.elseClause != null) {
+                        collectDeclarationsUsing(ifClause.elseClause.body, new HashSet<>(carriers), declarations);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void collectAll(List<ASTNode> body, Set<Declaration> declarations) {
+        for (ASTNode node : body) {
+            if (node instanceof Declaration) {
+                declarations.add((Declaration) node);
+            } else if (node instanceof IfClause) {
+                IfClause ifClause = (IfClause) node;
+                collectAll(ifClause.body, declarations);
+                if (ifClause.elseClause != null) {
+                    collectAll(ifClause.elseClause.body, declarations);
+                }
+            }
+        }
+    }
+
+    private static boolean uses(ASTNode expression, Set<String> names) {
+        if (expression instanceof VariableReference) {
+            return names.contains(((VariableReference) expression).name);
+        }
+        if (expression != null) {
+            for (int i = 0; i < expression.getChildCount(); i++) {
+                if (uses(expression.getChild(i), names)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
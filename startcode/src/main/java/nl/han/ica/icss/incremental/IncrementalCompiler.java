@@ -0,0 +1,273 @@
+package nl.han.ica.icss.incremental;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.PropertyRegistry;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.ParserPool;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recompiles a stylesheet that is being edited, redoing only the work the edit affects.
+ *
+ * The previous text is kept as a list of top-level statements with their position. An edit
+ * is located by comparing the old and the new text; only the statements it touches are
+ * parsed again. A DependencyGraph links every statement to the global assignments it uses;
+ * only when one of those evaluates to another value, or a reference is bound to another
+ * assignment, is a statement checked and evaluated again. Global variable assignments are
+ * cheap and are checked and evaluated on every compile.
+ *
+ * The result has the same errors and CSS as Pipeline.compile on the full text, but no AST.
+ */
+public class IncrementalCompiler {
+
+    private static final String INVALID = "invalid";
+
+    private final ParserPool parsers = new ParserPool();
+    private final PropertyRegistry properties;
+
+    private String source = "";
+    //The statements of source, or null when the next compile has to parse everything
+    private List<Statement> statements;
+    //The number of statements the last compile parsed and processed again, for tests
+    int revisited;
+
+    public IncrementalCompiler() {
+        this(PropertyRegistry.getDefault());
+    }
+
+    public IncrementalCompiler(PropertyRegistry properties) {
+        this.properties = properties;
+    }
+
+    public CompilationResult compile(String text) {
+        List<String> errors = new ArrayList<>();
+        List<Statement> updated = reparse(text, errors);
+        if (!errors.isEmpty()) {
+            statements = null;
+            return new CompilationResult(null, errors, null);
+        }
+        source = text;
+        statements = updated;
+        return evaluate();
+    }
+
+    private List<Statement> reparse(String text, List<String> errors) {
+        if (statements == null) {
+            return parseRegion(text, 0, text.length(), errors);
+        }
+
+        //The edit lies between the common prefix and the common suffix of the old and new text
+        int oldLength = source.length();
+        int newLength = text.length();
+        int shortest = Math.min(oldLength, newLength);
+        int prefix = 0;
+        while (prefix < shortest && source.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < shortest - prefix
+                && source.charAt(oldLength - 1 - suffix) == text.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+
+        //Statements before the edit stay, as do statements after it with an unchanged character in front
+        int first = 0;
+        while (first < statements.size() && statements.get(first).end <= prefix) {
+            first++;
+        }
+        int last = statements.size();
+        while (last > first && statements.get(last - 1).start > oldLength - suffix) {
+            last--;
+        }
+
+        int shift = newLength - oldLength;
+        int regionStart = first == 0 ? 0 : statements.get(first - 1).end;
+        int regionEnd = last == statements.size() ? newLength : statements.get(last).start + shift;
+
+        List<Statement> updated = new ArrayList<>(statements.subList(0, first));
+        updated.addAll(parseRegion(text, regionStart, regionEnd, errors));
+        for (Statement statement : statements.subList(last, statements.size())) {
+            statement.start += shift;
+            statement.end += shift;
+            updated.add(statement);
+        }
+        return updated;
+    }
+
+    //Parses the top-level statements in text[start, end)
+    private List<Statement> parseRegion(String text, int start, int end, List<String> errors) {
+        BaseErrorListener errorListener = new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                errors.add("Syntax error: " + msg);
+            }
+        };
+
+        List<Statement> parsed = new ArrayList<>();
+        try {
+            ICSSParser.StylesheetContext tree = parsers.parse(CharStreams.fromString(text.substring(start, end)), errorListener);
+            if (!errors.isEmpty()) {
+                return parsed;
+            }
+
+            ASTListener listener = new ASTListener();
+            new ParseTreeWalker().walk(listener, tree);
+            List<ASTNode> nodes = listener.getAST().root.body;
+
+            int index = 0;
+            for (ParseTree child : tree.children) {
+                if (child instanceof ParserRuleContext) {
+                    ParserRuleContext ctx = (ParserRuleContext) child;
+                    int statementStart = start + ctx.start.getStartIndex();
+                    int statementEnd = start + ctx.stop.getStopIndex() + 1;
+                    parsed.add(new Statement(statementStart, statementEnd,
+                            text.substring(statementStart, statementEnd), nodes.get(index++)));
+                }
+            }
+        } catch (RecognitionException e) {
+            errors.add(e.getMessage());
+        } catch (RuntimeException e) {
+            //After syntax errors the AST cannot always be completed
+            if (errors.isEmpty()) {
+                throw e;
+            }
+        } finally {
+            parsers.release();
+        }
+        return parsed;
+    }
+
+    private CompilationResult evaluate() {
+        Checker checker = new Checker(properties);
+        Evaluator evaluator = new Evaluator();
+        Generator generator = new Generator();
+
+        DependencyGraph graph = new DependencyGraph();
+        Map<ASTNode, Statement> byNode = new IdentityHashMap<>();
+        for (Statement statement : statements) {
+            graph.add(statement.node, statement.dependencies);
+            byNode.put(statement.node, statement);
+        }
+
+        //New statements, and statements of which a global now comes from another assignment
+        Set<Statement> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Statement statement : statements) {
+            if (statement.definitions == null || !statement.definitions.equals(definitions(statement.node, graph, byNode))) {
+                dirty.add(statement);
+            }
+        }
+
+        List<String> errors = new ArrayList<>();
+        StringBuilder css = new StringBuilder();
+        revisited = 0;
+
+        for (Statement statement : statements) {
+            ASTNode key = statement.node;
+            boolean revisit = dirty.contains(statement);
+            if (revisit && statement.definitions != null) {
+                //Evaluation replaced its expressions, so start again from the text
+                statement.node = parseStatement(statement.text);
+                revisited++;
+            }
+
+            //Assignments are cheap and put their variable in scope for the statements after them
+            if (revisit || statement.node instanceof VariableAssignment) {
+                process(statement, checker, evaluator, generator);
+                //The graph knows the statement by the node it was added with
+                statement.definitions = definitions(key, graph, byNode);
+            }
+
+            if (statement.node instanceof VariableAssignment) {
+                VariableAssignment assignment = (VariableAssignment) statement.node;
+                String value = statement.errors.isEmpty() && assignment.expression != null
+                        ? assignment.expression.getNodeLabel() : INVALID;
+                if (!value.equals(statement.value)) {
+                    statement.value = value;
+                    for (ASTNode dependent : graph.getDependents((VariableAssignment) key)) {
+                        dirty.add(byNode.get(dependent));
+                    }
+                }
+            }
+            errors.addAll(statement.errors);
+            if (statement.css != null) {
+                css.append(statement.css);
+            }
+        }
+        return new CompilationResult(null, errors, errors.isEmpty() ? css.toString() : null);
+    }
+
+    private static Map<String, Statement> definitions(ASTNode node, DependencyGraph graph,
+                                                      Map<ASTNode, Statement> byNode) {
+        Map<String, Statement> definitions = new HashMap<>();
+        for (Map.Entry<String, VariableAssignment> entry : graph.getDefinitions(node).entrySet()) {
+            definitions.put(entry.getKey(), byNode.get(entry.getValue()));
+        }
+        return definitions;
+    }
+
+    private void process(Statement statement, Checker checker, Evaluator evaluator, Generator generator) {
+        checker.checkTopLevel(statement.node);
+        statement.errors = new ArrayList<>();
+        for (SemanticError e : AST.getErrors(statement.node)) {
+            statement.errors.add(e.toString());
+        }
+
+        statement.css = null;
+        if (statement.errors.isEmpty()) {
+            evaluator.applyTopLevel(statement.node);
+            if (statement.node instanceof Stylerule) {
+                statement.css = generator.generate((Stylerule) statement.node);
+            }
+        }
+    }
+
+    private ASTNode parseStatement(String text) {
+        try {
+            return parsers.parseAST(CharStreams.fromString(text), new BaseErrorListener()).root.body.get(0);
+        } finally {
+            parsers.release();
+        }
+    }
+
+    private static class Statement {
+        int start;
+        int end;
+        final String text;
+        ASTNode node;
+
+        //Names of the globals referenced in the statement
+        final Set<String> dependencies;
+        //The statements assigning those globals when this one was last processed, null if never
+        Map<String, Statement> definitions;
+        //For an assignment, a signature of the value it last evaluated to
+        String value;
+
+        List<String> errors = new ArrayList<>();
+        String css;
+
+        Statement(int start, int end, String text, ASTNode node) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+            this.node = node;
+            this.dependencies = DependencyGraph.getGlobalNames(node);
+        }
+    }
+}
@@ -14,9 +14,16 @@ import nl.han.ica.icss.ast.selectors.IdSelector;
 import nl.han.ica.icss.ast.selectors.TagSelector;
 import nl.han.ica.icss.ast.literals.*;
 
+import java.util.HashMap;
+import java.util.function.Consumer;
+
 
 /**
  * This class extracts the ICSS Abstract Syntax Tree from the Antlr Parse tree.
+ *
+ * It only reads tokens in the exit events and builds expressions bottom-up, so it can also
+ * be attached to the parser as a parse listener. The AST is then built while parsing and no
+ * parse tree is needed at all (see ParserPool.parseAST).
  */
 public class ASTListener extends ICSSBaseListener {
 
@@ -26,9 +33,29 @@ public class ASTListener extends ICSSBaseListener {
 	//Use this to keep track of the parent nodes when recursively traversing the ast
 	private IHANStack<ASTNode> currentContainer;
 
+	//Finished expressions, waiting for the operation or statement that uses them
+	private IHANStack<Expression> expressions;
+
+	//When set, finished top-level statements go here instead of into the Stylesheet
+	private Consumer<ASTNode> statements;
+
+	//Selector texts of this parse, so a selector that occurs again shares its String.
+	//Names and properties go through the SymbolTable instead; selectors are mostly unique.
+	private final HashMap<String, String> selectorTexts = new HashMap<>();
+
 	public ASTListener() {
 		ast = new AST();
 		currentContainer = new HANStack<>();
+		expressions = new HANStack<>();
+	}
+
+	/*
+	 Hands every top-level stylerule and variable assignment to the consumer as soon as it is
+	 complete, leaving the Stylesheet empty. Used for streaming compilation.
+	 */
+	public ASTListener(Consumer<ASTNode> statements) {
+		this();
+		this.statements = statements;
 	}
 
 	public AST getAST() {
@@ -56,7 +83,7 @@ public class ASTListener extends ICSSBaseListener {
 	@Override
 	public void exitStylerule(ICSSParser.StyleruleContext ctx) {
 		Stylerule stylerule = (Stylerule) currentContainer.pop();
-		currentContainer.peek().addChild(stylerule);
+		addToContainer(stylerule);
 	}
 
 	//	Selector
@@ -64,15 +91,20 @@ public class ASTListener extends ICSSBaseListener {
 	public void exitSelector(ICSSParser.SelectorContext ctx) {
 		Selector selector;
 		if (ctx.LOWER_IDENT() != null) {
-			selector = new TagSelector(ctx.LOWER_IDENT().getText());
+			selector = new TagSelector(selectorText(ctx.LOWER_IDENT().getText()));
 		} else if (ctx.ID_IDENT() != null) {
-			selector = new IdSelector(ctx.ID_IDENT().getText());
+			selector = new IdSelector(selectorText(ctx.ID_IDENT().getText()));
 		} else {
-			selector = new ClassSelector(ctx.CLASS_IDENT().getText());
+			selector = new ClassSelector(selectorText(ctx.CLASS_IDENT().getText()));
 		}
 		currentContainer.peek().addChild(selector);
 	}
 
+	private String selectorText(String text) {
+		String shared = selectorTexts.putIfAbsent(text, text);
+		return shared != null ? shared : text;
+	}
+
 	//	Declaration
 	@Override
 	public void enterDeclaration(ICSSParser.DeclarationContext ctx) {
@@ -84,43 +116,43 @@ public class ASTListener extends ICSSBaseListener {
 	public void exitDeclaration(ICSSParser.DeclarationContext ctx) {
 		Declaration declaration = (Declaration) currentContainer.pop();
 		declaration.property = new PropertyName(ctx.LOWER_IDENT().getText());
+		declaration.expression = expressions.pop();
 		currentContainer.peek().addChild(declaration);
 	}
 
 	// VariableAssignment
 	@Override
 	public void enterVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
-		VariableAssignment variableAssignment = new VariableAssignment();
-		variableAssignment.name = new VariableReference(ctx.CAPITAL_IDENT().getText());
-		currentContainer.push(variableAssignment);
+		currentContainer.push(new VariableAssignment());
 	}
 
 	@Override
 	public void exitVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
 		VariableAssignment variableAssignment = (VariableAssignment) currentContainer.pop();
-		currentContainer.peek().addChild(variableAssignment);
+		variableAssignment.name = new VariableReference(ctx.CAPITAL_IDENT().getText());
+		variableAssignment.expression = expressions.pop();
+		addToContainer(variableAssignment);
 	}
 
 
 	//	Expressions
 	@Override
-	public void enterExpression(ICSSParser.ExpressionContext ctx) {
+	public void exitExpression(ICSSParser.ExpressionContext ctx) {
+		Operation operation = null;
 		if (ctx.MUL() != null) {
-			currentContainer.push(new MultiplyOperation());
+			operation = new MultiplyOperation();
 		} else if (ctx.PLUS() != null) {
-			currentContainer.push(new AddOperation());
+			operation = new AddOperation();
 		} else if (ctx.MIN() != null) {
-			currentContainer.push(new SubtractOperation());
+			operation = new SubtractOperation();
+		} else if (ctx.CAPITAL_IDENT() != null) {
+			expressions.push(new VariableReference(ctx.CAPITAL_IDENT().getText()));
 		}
-	}
 
-	@Override
-	public void exitExpression(ICSSParser.ExpressionContext ctx) {
-		if (ctx.MUL() != null || ctx.PLUS() != null || ctx.MIN() != null) {
-			Operation operation = (Operation) currentContainer.pop();
-			currentContainer.peek().addChild(operation);
-		} else if (ctx.CAPITAL_IDENT() != null) {
-			currentContainer.peek().addChild(new VariableReference(ctx.CAPITAL_IDENT().getText()));
+		if (operation != null) {
+			operation.rhs = expressions.pop();
+			operation.lhs = expressions.pop();
+			expressions.push(operation);
 		}
 	}
 
@@ -143,7 +175,7 @@ public class ASTListener extends ICSSBaseListener {
 			literal = new BoolLiteral("FALSE");
 		}
 
-		currentContainer.peek().addChild(literal);
+		expressions.push(literal);
 	}
 
 //	If
@@ -155,6 +187,8 @@ public class ASTListener extends ICSSBaseListener {
 	@Override
 	public void exitIfClause(ICSSParser.IfClauseContext ctx) {
 		IfClause ifClause = (IfClause) currentContainer.pop();
+		//The condition was parsed before the body, so it is the one expression left
+		ifClause.conditionalExpression = expressions.pop();
 		currentContainer.peek().addChild(ifClause);
 	}
 
@@ -170,6 +204,12 @@ public class ASTListener extends ICSSBaseListener {
 		currentContainer.peek().addChild(elseClause);
 	}
 
-
-
-}
\ No newline at end of file
+	private void addToContainer(ASTNode node) {
+		ASTNode container = currentContainer.peek();
+		if (statements != null && container instanceof Stylesheet) {
+			statements.accept(node);
+		} else {
+			container.addChild(node);
+		}
+	}
+}
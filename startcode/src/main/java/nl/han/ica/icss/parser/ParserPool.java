@@ -0,0 +1,153 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+/**
+ * Hands out one lexer, token stream and parser per thread, reset for every new input
+ * instead of constructed again.
+ *
+ * The prediction DFA lives in static fields of the generated ICSSLexer and ICSSParser,
+ * so everything a parse learns is shared by all threads. Parsing representative input
+ * once at startup (see Pipeline.warmUp) keeps that cost away from the first real request.
+ *
+ * By default a stylesheet is first parsed in SLL prediction mode, bailing out at the first
+ * error. Only when that fails it is parsed again with full LL prediction and the normal
+ * error recovery and reporting, so valid input never pays for full context prediction.
+ */
+public class ParserPool {
+
+    private final boolean sllFirst;
+    private final ThreadLocal<Recognizers> recognizers = ThreadLocal.withInitial(Recognizers::new);
+
+    public ParserPool() {
+        this(true);
+    }
+    public ParserPool(boolean sllFirst) {
+        this.sllFirst = sllFirst;
+    }
+
+    /*
+     Parses a stylesheet with this thread's parser. Syntax errors go to the given listener;
+     the parse tree is only valid until the next call on the same thread.
+     */
+    public ICSSParser.StylesheetContext parse(CharStream input, ANTLRErrorListener errorListener) {
+        Recognizers current = reset(input, errorListener);
+
+        if (sllFirst) {
+            current.parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            current.parser.setErrorHandler(current.bail);
+            try {
+                return current.parser.stylesheet();
+            } catch (ParseCancellationException e) {
+                //Either a syntax error or SLL is too weak here, LL decides which one
+                rewind(current);
+            }
+        }
+        return parseWithRecovery(current, errorListener);
+    }
+
+    /*
+     Parses a stylesheet straight into an AST: the ASTListener is attached as parse listener
+     and no parse tree is built, so only the AST stays in memory and it is not walked twice.
+     Input that fails this first attempt is parsed again into a parse tree with full error
+     recovery and then walked, exactly as parse does.
+     */
+    public AST parseAST(CharStream input, ANTLRErrorListener errorListener) {
+        Recognizers current = reset(input, errorListener);
+
+        ASTListener builder = new ASTListener();
+        current.parser.getInterpreter().setPredictionMode(sllFirst ? PredictionMode.SLL : PredictionMode.LL);
+        current.parser.setErrorHandler(current.bail);
+        current.parser.setBuildParseTree(false);
+        current.parser.addParseListener(builder);
+        try {
+            current.parser.stylesheet();
+            return builder.getAST();
+        } catch (ParseCancellationException e) {
+            rewind(current);
+        } finally {
+            current.parser.removeParseListeners();
+            current.parser.setBuildParseTree(true);
+        }
+
+        ASTListener listener = new ASTListener();
+        ParseTreeWalker walker = new ParseTreeWalker();
+        walker.walk(listener, parseWithRecovery(current, errorListener));
+        return listener.getAST();
+    }
+
+    private Recognizers reset(CharStream input, ANTLRErrorListener errorListener) {
+        Recognizers current = recognizers.get();
+
+        current.lexer.setInputStream(input);
+        current.lexer.removeErrorListeners();
+        current.lexer.addErrorListener(errorListener);
+        current.tokens.setTokenSource(current.lexer);
+        current.parser.setTokenStream(current.tokens);
+        current.parser.removeErrorListeners();
+        return current;
+    }
+
+    private void rewind(Recognizers current) {
+        current.tokens.seek(0);
+        current.parser.reset();
+    }
+
+    private ICSSParser.StylesheetContext parseWithRecovery(Recognizers current, ANTLRErrorListener errorListener) {
+        current.parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        current.parser.setErrorHandler(new DefaultErrorStrategy());
+        current.parser.addErrorListener(errorListener);
+        return current.parser.stylesheet();
+    }
+
+    /*
+     Drops the references to the last input and its tokens, so a large stylesheet is not kept
+     alive by an idle thread.
+     */
+    public void release() {
+        Recognizers current = recognizers.get();
+        current.lexer.setInputStream(current.empty);
+        current.tokens.setTokenSource(current.lexer);
+        current.parser.setTokenStream(current.tokens);
+        current.lexer.removeErrorListeners();
+        current.parser.removeErrorListeners();
+    }
+
+    private static class Recognizers {
+        final CharStream empty = CharStreams.fromString("");
+        final ICSSLexer lexer = new ICSSLexer(empty);
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        final ICSSParser parser = new ICSSParser(tokens);
+        final BailErrorStrategy bail = new DetachingBailErrorStrategy();
+    }
+
+    /*
+     Bailing out unwinds through the exit events of every open rule. A parse listener must not
+     see those, they would hand it rules that were never completed.
+     */
+    private static class DetachingBailErrorStrategy extends BailErrorStrategy {
+        @Override
+        public void recover(Parser recognizer, RecognitionException e) {
+            recognizer.removeParseListeners();
+            super.recover(recognizer, e);
+        }
+
+        @Override
+        public Token recoverInline(Parser recognizer) throws RecognitionException {
+            recognizer.removeParseListeners();
+            return super.recoverInline(recognizer);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package nl.han.ica.icss.transforms;
+
+/**
+ * An expression lowered by the ExpressionCompiler to instructions for the ExpressionVM.
+ *
+ * The code is a sequence of ints, every instruction an opcode followed by its operands:
+ *   CONST value          push a value; two ints, the high and low half of the packed Values long
+ *   LOAD depth slot      push a variable, resolved by the Checker
+ *   ADD, SUBTRACT, MULTIPLY
+ *                        replace the top two values by the result
+ *   ADD_CONST value, SUBTRACT_CONST value, MULTIPLY_CONST value
+ *   ADD_LOAD depth slot, SUBTRACT_LOAD depth slot, MULTIPLY_LOAD depth slot
+ *                        combine the top value with a constant or variable, for the common case
+ *                        of an operation with a simple right operand
+ *
+ * Operations on constants only are done by the compiler.
+ */
+public final class CompiledExpression {
+
+    public static final int CONST = 0;
+    public static final int LOAD = 1;
+    public static final int ADD = 2;
+    public static final int SUBTRACT = 3;
+    public static final int MULTIPLY = 4;
+    public static final int ADD_CONST = 5;
+    public static final int SUBTRACT_CONST = 6;
+    public static final int MULTIPLY_CONST = 7;
+    public static final int ADD_LOAD = 8;
+    public static final int SUBTRACT_LOAD = 9;
+    public static final int MULTIPLY_LOAD = 10;
+
+    //Added to ADD, SUBTRACT or MULTIPLY for the form with a constant or variable operand
+    static final int WITH_CONST = ADD_CONST - ADD;
+    static final int WITH_LOAD = ADD_LOAD - ADD;
+
+    final int[] code;
+    //The most values on the stack at any point
+    final int maxStack;
+
+    CompiledExpression(int[] code, int maxStack) {
+        this.code = code;
+        this.maxStack = maxStack;
+    }
+
+    public int length() {
+        return code.length;
+    }
+}
@@ -0,0 +1,128 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/*
+ Simplifies a checked AST before evaluation, without changing what the Evaluator makes of it:
+ - operations on literals are replaced by their result
+ - references to variables with a known value are replaced by that value
+ - if clauses with a known condition keep only the branch that is taken
+
+ A taken branch stays an if clause with condition TRUE, because the Evaluator places the
+ contents of if clauses after the other declarations of a body; inlining it would change the
+ order of the output. A clause that contributes nothing is removed.
+
+ Assignments are kept, with their folded value, so the AST can still be checked and evaluated.
+ */
+public class ConstantFolder implements Transform {
+
+    private Scopes variableValues;
+
+    @Override
+    public void apply(AST ast) {
+        variableValues = new Scopes();
+        variableValues.open();
+        for (ASTNode child : ast.root.body) {
+            if (child instanceof Stylerule) {
+                variableValues.open();
+                foldBody(((Stylerule) child).body);
+                variableValues.close();
+            } else if (child instanceof VariableAssignment) {
+                foldVariableAssignment((VariableAssignment) child);
+            }
+        }
+        variableValues.close();
+    }
+
+    private void foldBody(ArrayList<ASTNode> body) {
+        Iterator<ASTNode> iterator = body.iterator();
+        while (iterator.hasNext()) {
+            ASTNode node = iterator.next();
+            if (node instanceof Declaration) {
+                Declaration declaration = (Declaration) node;
+                declaration.expression = foldExpression(declaration.expression);
+            } else if (node instanceof VariableAssignment) {
+                foldVariableAssignment((VariableAssignment) node);
+            } else if (node instanceof IfClause) {
+                if (!foldIfClause((IfClause) node)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void foldVariableAssignment(VariableAssignment variableAssignment) {
+        variableAssignment.expression = foldExpression(variableAssignment.expression);
+        //An unknown value must hide an outer value of the same slot as well
+        variableValues.assign(variableAssignment.name.slot, variableAssignment.expression instanceof Literal
+                ? (Literal) variableAssignment.expression : null);
+    }
+
+    //Returns false when the if clause can be removed
+    private boolean foldIfClause(IfClause ifClause) {
+        ifClause.conditionalExpression = foldExpression(ifClause.conditionalExpression);
+
+        if (!(ifClause.conditionalExpression instanceof BoolLiteral)) {
+            foldScopedBody(ifClause.body);
+            if (ifClause.elseClause != null) {
+                foldScopedBody(ifClause.elseClause.body);
+            }
+            return true;
+        }
+
+        if (!((BoolLiteral) ifClause.conditionalExpression).value) {
+            if (ifClause.elseClause == null) {
+                return false;
+            }
+            //The else body takes the place of the if body
+            ifClause.body = ifClause.elseClause.body;
+            ifClause.conditionalExpression = new BoolLiteral(true);
+        }
+        ifClause.elseClause = null;
+        foldScopedBody(ifClause.body);
+        return true;
+    }
+
+    private void foldScopedBody(ArrayList<ASTNode> body) {
+        variableValues.open();
+        foldBody(body);
+        variableValues.close();
+    }
+
+    private Expression foldExpression(Expression expression) {
+        if (expression instanceof VariableReference) {
+            Literal value = variableValues.lookup((VariableReference) expression);
+            return value != null ? value : expression;
+        } else if (expression instanceof Operation) {
+            Operation operation = (Operation) expression;
+            operation.lhs = foldExpression(operation.lhs);
+            operation.rhs = foldExpression(operation.rhs);
+            if (operation.lhs instanceof Literal && operation.rhs instanceof Literal) {
+                Literal folded = foldOperation(operation, (Literal) operation.lhs, (Literal) operation.rhs);
+                if (folded != null) {
+                    return folded;
+                }
+            }
+        }
+        return expression;
+    }
+
+    //Null when the operands do not fit, as in the Evaluator
+    private Literal foldOperation(Operation operation, Literal left, Literal right) {
+        if (operation instanceof MultiplyOperation) {
+            return Values.toLiteral(Values.multiply(Values.of(left), Values.of(right)));
+        } else if (operation instanceof SubtractOperation) {
+            return Values.toLiteral(Values.subtract(Values.of(left), Values.of(right)));
+        } else if (operation instanceof AddOperation) {
+            return Values.toLiteral(Values.add(Values.of(left), Values.of(right)));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Selector;
+
+import java.util.List;
+
+/*
+ A stylerule of an EvaluatedStylesheet: the selectors of the source rule and its declarations
+ as the Evaluator would leave them in its body, the contents of if clauses last.
+ The declarations are new nodes; their property names are shared with the source AST.
+ */
+public class EvaluatedRule {
+
+    public final List<Selector> selectors;
+    public final List<Declaration> declarations;
+
+    public EvaluatedRule(List<Selector> selectors, List<Declaration> declarations) {
+        this.selectors = selectors;
+        this.declarations = declarations;
+    }
+}
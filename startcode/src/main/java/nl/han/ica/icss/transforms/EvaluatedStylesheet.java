@@ -0,0 +1,17 @@
+package nl.han.ica.icss.transforms;
+
+import java.util.List;
+
+/**
+ * The result of Evaluator.evaluate: the stylerules of a stylesheet, in order, each with the
+ * declarations that end up in its CSS. Variables and if clauses are gone and every declaration
+ * has a literal value. The AST it came from is not changed.
+ */
+public class EvaluatedStylesheet {
+
+    public final List<EvaluatedRule> rules;
+
+    public EvaluatedStylesheet(List<EvaluatedRule> rules) {
+        this.rules = rules;
+    }
+}
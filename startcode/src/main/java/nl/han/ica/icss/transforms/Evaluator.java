@@ -3,21 +3,22 @@ package nl.han.ica.icss.transforms;
 import jdk.jfr.Percentage;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.BoolLiteral;
-import nl.han.ica.icss.ast.literals.PercentageLiteral;
-import nl.han.ica.icss.ast.literals.PixelLiteral;
-import nl.han.ica.icss.ast.literals.ScalarLiteral;
 import nl.han.ica.icss.ast.operations.AddOperation;
 import nl.han.ica.icss.ast.operations.MultiplyOperation;
 import nl.han.ica.icss.ast.operations.SubtractOperation;
 
 import java.util.*;
 
+/*
+ Variables are found through the scope and slot the Checker resolved for them, so the AST
+ must have been checked first.
+ */
 public class Evaluator implements Transform {
 
-    private LinkedList<HashMap<String, Literal>> variableValues;
+    private final Scopes variableValues;
 
     public Evaluator() {
-        variableValues = new LinkedList<>();
+        variableValues = new Scopes();
     }
 
     @Override
@@ -25,9 +26,24 @@ public class Evaluator implements Transform {
         applyStyleSheet(ast.root);
     }
 
+    /*
+     Evaluates a single top-level statement in place, using the globals assigned by the
+     statements applied before it; the streaming counterpart of apply.
+     */
+    public void applyTopLevel(ASTNode statement) {
+        if (variableValues.isEmpty()) {
+            variableValues.open();
+        }
+        if (statement instanceof Stylerule) {
+            applyStylerule((Stylerule) statement);
+        } else if (statement instanceof VariableAssignment) {
+            applyVariableAssignment((VariableAssignment) statement);
+        }
+    }
+
 //Stylesheet
     private void applyStyleSheet(Stylesheet stylesheet) {
-        variableValues.addFirst(new HashMap<>());
+        variableValues.open();
         List<ASTNode> removableNode = new ArrayList<>();
         
         for (ASTNode child : stylesheet.getChildren()) {
@@ -43,39 +59,49 @@ public class Evaluator implements Transform {
             stylesheet.removeChild(child);
         }
 
-        variableValues.removeFirst();
+        variableValues.close();
     }
 
 //    Stylerule
     private void applyStylerule(Stylerule stylerule) {
-        variableValues.addFirst(new HashMap<>());
+        variableValues.open();
         applyBody(stylerule.body);
-        variableValues.removeFirst();        
+        variableValues.close();        
     }
 
+    //If and else bodies are scopes of their own, as in the Checker
+    private void applyScopedBody(ArrayList<ASTNode> body) {
+        variableValues.open();
+        applyBody(body);
+        variableValues.close();
+    }
+
+    //Keeps the declarations in order and moves the contents of if clauses to the end, in one pass
     private void applyBody(ArrayList<ASTNode> body) {
-        List<ASTNode> nodesRemove = new ArrayList<>();
+        List<ASTNode> nodesKeep = new ArrayList<>(body.size());
         List<ASTNode> nodesAdd = new ArrayList<>();
 
         for (ASTNode node  : body) {
             if (node instanceof Declaration) {
                 applyDeclaration((Declaration) node);
+                nodesKeep.add(node);
             } else if (node instanceof VariableAssignment) {
                 applyVariableAssignment((VariableAssignment) node);
-                nodesRemove.add(node);
             } else if (node instanceof IfClause) {
                 nodesAdd.addAll(applyIfClause((IfClause) node));
-                nodesRemove.add(node);
+            } else {
+                nodesKeep.add(node);
             }
         }
-        body.removeAll(nodesRemove);
+        body.clear();
+        body.addAll(nodesKeep);
         body.addAll(nodesAdd);
     }
 
     //    VariableAssignment
     private void applyVariableAssignment(VariableAssignment variableAssignment) {
         variableAssignment.expression = evaluateExpression(variableAssignment.expression);
-        variableValues.getFirst().put(variableAssignment.name.name, (Literal) variableAssignment.expression);
+        variableValues.assign(variableAssignment.name.slot, (Literal) variableAssignment.expression);
     }
 
 //    Declaration
@@ -83,89 +109,116 @@ public class Evaluator implements Transform {
         declaration.expression = evaluateExpression(declaration.expression);
     }
 
-//    Evaluate expression+subs
-    private Literal evaluateExpression(Expression expression) {
-        if (expression instanceof Literal) {
-            return (Literal) expression;
-        } else if (expression instanceof MultiplyOperation) {
-            return evaluateMultiplyOperation((MultiplyOperation) expression);
-        } else if (expression instanceof SubtractOperation) {
-            return evaluateSubtractAddOperation((SubtractOperation) expression, true);
-        } else if (expression instanceof AddOperation) {
-            return evaluateSubtractAddOperation((AddOperation) expression, false);
-        } else if (expression instanceof VariableReference) {
-            return evaluateVariableReference((VariableReference) expression);
+    /*
+     Evaluates a checked AST into a new EvaluatedStylesheet, with the same rules and declarations
+     as apply leaves in the AST. The AST is not changed, so it can be kept and evaluated again,
+     also on other threads (with an Evaluator per thread).
+     */
+    public EvaluatedStylesheet evaluate(AST ast) {
+        List<EvaluatedRule> rules = new ArrayList<>();
+        variableValues.open();
+        for (ASTNode child : ast.root.body) {
+            if (child instanceof Stylerule) {
+                Stylerule stylerule = (Stylerule) child;
+                List<Declaration> declarations = new ArrayList<>();
+                variableValues.open();
+                evaluateBody(stylerule.body, declarations);
+                variableValues.close();
+                rules.add(new EvaluatedRule(stylerule.selectors, declarations));
+            } else if (child instanceof VariableAssignment) {
+                evaluateVariableAssignment((VariableAssignment) child);
+            }
         }
-        return null;
+        variableValues.close();
+        return new EvaluatedStylesheet(rules);
     }
 
-    private Literal evaluateVariableReference(VariableReference variableReference) {
-        for (Map<String, Literal> value : variableValues) {
-            if (value.containsKey(variableReference.name)) {
-                return value.get(variableReference.name);
+    private void evaluateBody(List<ASTNode> body, List<Declaration> declarations) {
+        List<Declaration> ifDeclarations = null;
+        for (ASTNode node : body) {
+            if (node instanceof Declaration) {
+                Declaration declaration = (Declaration) node;
+                declarations.add((Declaration) new Declaration().addChild(declaration.property)
+                        .addChild(evaluateExpression(declaration.expression)));
+            } else if (node instanceof VariableAssignment) {
+                evaluateVariableAssignment((VariableAssignment) node);
+            } else if (node instanceof IfClause) {
+                IfClause ifClause = (IfClause) node;
+                List<ASTNode> branch = ((BoolLiteral) Objects.requireNonNull(evaluateExpression(ifClause.conditionalExpression))).value
+                        ? ifClause.body : ifClause.elseClause != null ? ifClause.elseClause.body : null;
+                if (branch != null) {
+                    if (ifDeclarations == null) {
+                        ifDeclarations = new ArrayList<>();
+                    }
+                    variableValues.open();
+                    evaluateBody(branch, ifDeclarations);
+                    variableValues.close();
+                }
             }
         }
-        return null;
+        if (ifDeclarations != null) {
+            declarations.addAll(ifDeclarations);
+        }
     }
 
-    private Literal evaluateSubtractAddOperation(Operation operation, boolean isSubtract) {
-        Literal left = evaluateExpression(operation.lhs);
-        Literal right = evaluateExpression(operation.rhs);
+    private void evaluateVariableAssignment(VariableAssignment variableAssignment) {
+        variableValues.assign(variableAssignment.name.slot, evaluateExpression(variableAssignment.expression));
+    }
 
-        if (left instanceof PercentageLiteral && right instanceof PercentageLiteral) {
-            if (isSubtract) {
-                return new PercentageLiteral(((PercentageLiteral) left).value - ((PercentageLiteral) right).value);
-            } else {
-                return new PercentageLiteral(((PercentageLiteral) left).value + ((PercentageLiteral) right).value);
-            }
-        } else if (left instanceof PixelLiteral && right instanceof PixelLiteral) {
-            if (isSubtract) {
-                return new PixelLiteral(((PixelLiteral) left).value - ((PixelLiteral) right).value);
-            } else {
-                return new PixelLiteral(((PixelLiteral) left).value + ((PixelLiteral) right).value);
-            }
-        } else if (left instanceof ScalarLiteral && right instanceof ScalarLiteral) {
-            if (isSubtract) {
-                return new ScalarLiteral(((ScalarLiteral) left).value - ((ScalarLiteral) right).value);
-            } else {
-                return new ScalarLiteral(((ScalarLiteral) left).value + ((ScalarLiteral) right).value);
-            }
+    /*
+     Evaluates an expression with the variables assigned so far, without changing the AST.
+     Null when the expression has no value, as for an operation on values that do not fit.
+     */
+    public Literal evaluate(Expression expression) {
+        return evaluateExpression(expression);
+    }
+
+//    Evaluate expression+subs
+    private Literal evaluateExpression(Expression expression) {
+        if (expression instanceof Literal) {
+            return (Literal) expression;
+        } else if (expression instanceof VariableReference) {
+            return evaluateVariableReference((VariableReference) expression);
+        } else if (expression instanceof Operation) {
+            return Values.toLiteral(evaluateValue(expression));
         }
         return null;
     }
 
-    private Literal evaluateMultiplyOperation(MultiplyOperation operation) {
-        Literal left = evaluateExpression(operation.lhs);
-        Literal right = evaluateExpression(operation.rhs);
-
-//        All scalars right if only 1
-        if (left instanceof ScalarLiteral && !(right instanceof ScalarLiteral)) {
-            Literal temp = right;
-            right= left;
-            left = temp;
-        }
+    private Literal evaluateVariableReference(VariableReference variableReference) {
+        return variableValues.lookup(variableReference);
+    }
 
-        if (right instanceof ScalarLiteral) {
-            if (left instanceof PixelLiteral) {
-                return new PixelLiteral(((PixelLiteral) left).value * ((ScalarLiteral) right).value);
-            } else if (left instanceof ScalarLiteral) {
-                return new ScalarLiteral(((ScalarLiteral) left).value * ((ScalarLiteral) right).value);
-            } else if (left instanceof PercentageLiteral) {
-                return new PercentageLiteral(((PercentageLiteral) left).value * ((ScalarLiteral) right).value);
-            }
+    /*
+     Operations are computed on Values, so the intermediate results of a chain are not
+     allocated as literals; only the final value becomes one.
+     */
+    private long evaluateValue(Expression expression) {
+        if (expression instanceof Literal) {
+            return Values.of((Literal) expression);
+        } else if (expression instanceof MultiplyOperation) {
+            Operation operation = (Operation) expression;
+            return Values.multiply(evaluateValue(operation.lhs), evaluateValue(operation.rhs));
+        } else if (expression instanceof SubtractOperation) {
+            Operation operation = (Operation) expression;
+            return Values.subtract(evaluateValue(operation.lhs), evaluateValue(operation.rhs));
+        } else if (expression instanceof AddOperation) {
+            Operation operation = (Operation) expression;
+            return Values.add(evaluateValue(operation.lhs), evaluateValue(operation.rhs));
+        } else if (expression instanceof VariableReference) {
+            return Values.of(evaluateVariableReference((VariableReference) expression));
         }
-
-        return null;
+        return Values.UNDEFINED;
     }
 
 //    If else
     private List<ASTNode> applyIfClause(IfClause ifClause) {
         boolean isTrue = ((BoolLiteral) Objects.requireNonNull(evaluateExpression(ifClause.conditionalExpression))).value;
         if (isTrue) {
-            applyBody(ifClause.body);
+            applyScopedBody(ifClause.body);
             return ifClause.body;
         } else if (ifClause.elseClause != null) {
-            applyBody(ifClause.elseClause.body);
+            applyScopedBody(ifClause.elseClause.body);
             return ifClause.elseClause.body;
         } else {
             return new ArrayList<>();
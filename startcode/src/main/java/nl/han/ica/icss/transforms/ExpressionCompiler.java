@@ -0,0 +1,131 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+
+import java.util.Arrays;
+
+/**
+ * Lowers expressions of a checked AST to CompiledExpressions: operands first, then the
+ * operation, so the ExpressionVM can run them on a stack without walking the tree.
+ * Variable references use the scope and slot the Checker resolved.
+ *
+ * Every instruction costs the VM a jump, so the code is kept short: operations on constants
+ * are computed here, and an operation with a constant or variable right operand is one
+ * instruction.
+ */
+public class ExpressionCompiler {
+
+    private int[] code = new int[32];
+    private int length;
+    private int stack;
+    private int maxStack;
+
+    public CompiledExpression compile(Expression expression) {
+        length = 0;
+        stack = 0;
+        maxStack = 0;
+        emitExpression(expression);
+        return new CompiledExpression(Arrays.copyOf(code, length), maxStack);
+    }
+
+    private void emitExpression(Expression expression) {
+        if (expression instanceof Literal) {
+            emitConstant(Values.of((Literal) expression));
+        } else if (expression instanceof VariableReference) {
+            VariableReference reference = (VariableReference) expression;
+            if (reference.depth < 0) {
+                emitConstant(Values.UNDEFINED);
+            } else {
+                emit(CompiledExpression.LOAD, reference.depth, reference.slot);
+                push();
+            }
+        } else if (expression instanceof Operation) {
+            emitOperation((Operation) expression);
+        } else {
+            emitConstant(Values.UNDEFINED);
+        }
+    }
+
+    private void emitOperation(Operation operation) {
+        int opcode;
+        if (operation instanceof MultiplyOperation) {
+            opcode = CompiledExpression.MULTIPLY;
+        } else if (operation instanceof SubtractOperation) {
+            opcode = CompiledExpression.SUBTRACT;
+        } else if (operation instanceof AddOperation) {
+            opcode = CompiledExpression.ADD;
+        } else {
+            emitConstant(Values.UNDEFINED);
+            return;
+        }
+
+        int lhsStart = length;
+        emitExpression(operation.lhs);
+        int rhsStart = length;
+        if (operation.rhs instanceof VariableReference && ((VariableReference) operation.rhs).depth >= 0) {
+            VariableReference reference = (VariableReference) operation.rhs;
+            emit(opcode + CompiledExpression.WITH_LOAD, reference.depth, reference.slot);
+            return;
+        }
+        emitExpression(operation.rhs);
+
+        if (!isConstant(rhsStart)) {
+            emit(opcode);
+            stack--;
+            return;
+        }
+        long rhs = constantAt(rhsStart);
+        length = rhsStart;
+        stack--;
+        if (isConstant(lhsStart)) {
+            //Both sides known: compute it now
+            long lhs = constantAt(lhsStart);
+            length = lhsStart;
+            stack--;
+            emitConstant(apply(opcode, lhs, rhs));
+        } else {
+            emit(opcode + CompiledExpression.WITH_CONST, (int) (rhs >>> 32), (int) rhs);
+        }
+    }
+
+    //Whether the code from start on is a single CONST
+    private boolean isConstant(int start) {
+        return length == start + 3 && code[start] == CompiledExpression.CONST;
+    }
+
+    private long constantAt(int start) {
+        return ((long) code[start + 1] << 32) | (code[start + 2] & 0xffffffffL);
+    }
+
+    private static long apply(int opcode, long lhs, long rhs) {
+        switch (opcode) {
+            case CompiledExpression.ADD:
+                return Values.add(lhs, rhs);
+            case CompiledExpression.SUBTRACT:
+                return Values.subtract(lhs, rhs);
+            default:
+                return Values.multiply(lhs, rhs);
+        }
+    }
+
+    private void emitConstant(long value) {
+        emit(CompiledExpression.CONST, (int) (value >>> 32), (int) value);
+        push();
+    }
+
+    private void push() {
+        stack++;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void emit(int... instruction) {
+        if (length + instruction.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + instruction.length));
+        }
+        System.arraycopy(instruction, 0, code, length, instruction.length);
+        length += instruction.length;
+    }
+}
@@ -0,0 +1,128 @@
+package nl.han.ica.icss.transforms;
+
+import java.util.Arrays;
+
+/**
+ * Runs CompiledExpressions. Values are packed longs (see Values), both on the stack and in
+ * the variable slots, so running an expression allocates nothing.
+ *
+ * The variables are scoped like the Checker's scopes: open a scope for every stylesheet,
+ * stylerule, if and else body the caller enters, and assign the values of its variables.
+ * One VM is meant for one thread.
+ */
+public class ExpressionVM {
+
+    private long[] stack = new long[16];
+
+    private long[] slots = new long[64];
+    //Per open scope, outermost first: where its slots start
+    private int[] scopeStarts = new int[8];
+    private int scopes;
+    //The first slot after the innermost scope
+    private int top;
+
+    public ExpressionVM() {
+        Arrays.fill(slots, Values.UNDEFINED);
+    }
+
+    public void openScope() {
+        if (scopes == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, scopes * 2);
+        }
+        scopeStarts[scopes++] = top;
+    }
+
+    public void closeScope() {
+        int start = scopeStarts[--scopes];
+        Arrays.fill(slots, start, top, Values.UNDEFINED);
+        top = start;
+    }
+
+    //Sets a slot of the innermost scope
+    public void assign(int slot, long value) {
+        int index = scopeStarts[scopes - 1] + slot;
+        if (index >= slots.length) {
+            int length = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(length * 2, index + 1));
+            Arrays.fill(slots, length, slots.length, Values.UNDEFINED);
+        }
+        slots[index] = value;
+        top = Math.max(top, index + 1);
+    }
+
+    public long run(CompiledExpression expression) {
+        int[] code = expression.code;
+        if (expression.maxStack > stack.length) {
+            stack = new long[expression.maxStack];
+        }
+        long[] stack = this.stack;
+        int sp = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case CompiledExpression.CONST:
+                    stack[sp++] = constant(code, pc);
+                    pc += 3;
+                    break;
+                case CompiledExpression.LOAD:
+                    stack[sp++] = load(code[pc + 1], code[pc + 2]);
+                    pc += 3;
+                    break;
+                case CompiledExpression.ADD:
+                    sp--;
+                    stack[sp - 1] = Values.add(stack[sp - 1], stack[sp]);
+                    pc++;
+                    break;
+                case CompiledExpression.SUBTRACT:
+                    sp--;
+                    stack[sp - 1] = Values.subtract(stack[sp - 1], stack[sp]);
+                    pc++;
+                    break;
+                case CompiledExpression.MULTIPLY:
+                    sp--;
+                    stack[sp - 1] = Values.multiply(stack[sp - 1], stack[sp]);
+                    pc++;
+                    break;
+                case CompiledExpression.ADD_CONST:
+                    stack[sp - 1] = Values.add(stack[sp - 1], constant(code, pc));
+                    pc += 3;
+                    break;
+                case CompiledExpression.SUBTRACT_CONST:
+                    stack[sp - 1] = Values.subtract(stack[sp - 1], constant(code, pc));
+                    pc += 3;
+                    break;
+                case CompiledExpression.MULTIPLY_CONST:
+                    stack[sp - 1] = Values.multiply(stack[sp - 1], constant(code, pc));
+                    pc += 3;
+                    break;
+                case CompiledExpression.ADD_LOAD:
+                    stack[sp - 1] = Values.add(stack[sp - 1], load(code[pc + 1], code[pc + 2]));
+                    pc += 3;
+                    break;
+                case CompiledExpression.SUBTRACT_LOAD:
+                    stack[sp - 1] = Values.subtract(stack[sp - 1], load(code[pc + 1], code[pc + 2]));
+                    pc += 3;
+                    break;
+                case CompiledExpression.MULTIPLY_LOAD:
+                    stack[sp - 1] = Values.multiply(stack[sp - 1], load(code[pc + 1], code[pc + 2]));
+                    pc += 3;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    private static long constant(int[] code, int pc) {
+        return ((long) code[pc + 1] << 32) | (code[pc + 2] & 0xffffffffL);
+    }
+
+    private long load(int depth, int slot) {
+        if (depth >= scopes) {
+            return Values.UNDEFINED;
+        }
+        int index = scopeStarts[scopes - 1 - depth] + slot;
+        return index < slots.length ? slots[index] : Values.UNDEFINED;
+    }
+}
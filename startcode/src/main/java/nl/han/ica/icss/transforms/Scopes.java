@@ -0,0 +1,57 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.VariableReference;
+
+import java.util.Arrays;
+
+/*
+ Variable values by the scope and slot the Checker resolved for them. All scopes share one
+ array of values; a scope is the part from its start up to the start of the scope opened
+ inside it.
+ */
+class Scopes {
+
+    private Literal[] values = new Literal[64];
+    //Per open scope, outermost first: where its slots start in values
+    private int[] scopeStarts = new int[8];
+    private int scopes;
+    //The first slot after the innermost scope
+    private int top;
+
+    boolean isEmpty() {
+        return scopes == 0;
+    }
+
+    void open() {
+        if (scopes == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, scopes * 2);
+        }
+        scopeStarts[scopes++] = top;
+    }
+
+    void close() {
+        int start = scopeStarts[--scopes];
+        Arrays.fill(values, start, top, null);
+        top = start;
+    }
+
+    //Sets a slot of the innermost scope
+    void assign(int slot, Literal value) {
+        int index = scopeStarts[scopes - 1] + slot;
+        if (index >= values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, index + 1));
+        }
+        values[index] = value;
+        top = Math.max(top, index + 1);
+    }
+
+    //The value of a resolved reference, null if it is unresolved or has no value
+    Literal lookup(VariableReference reference) {
+        if (reference.depth < 0 || reference.depth >= scopes) {
+            return null;
+        }
+        int index = scopeStarts[scopes - 1 - reference.depth] + reference.slot;
+        return index < values.length ? values[index] : null;
+    }
+}
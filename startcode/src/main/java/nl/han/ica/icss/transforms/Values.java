@@ -0,0 +1,128 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+/**
+ * Values of ICSS expressions packed in a long: the type in the high 32 bits, the value in the
+ * low 32 bits. Arithmetic on them allocates nothing; a Literal is only made when a value has
+ * to go back into the AST.
+ *
+ * The types are the ordinals of ExpressionType. Pixels, percentages and scalars hold their
+ * number, colors their 24 bit RGB value and booleans 0 or 1. An operation on values that do
+ * not fit gives UNDEFINED, where the Evaluator gives null.
+ */
+public final class Values {
+
+    public static final int PIXEL = 0;
+    public static final int PERCENTAGE = 1;
+    public static final int COLOR = 2;
+    public static final int SCALAR = 3;
+    public static final int UNDEFINED_TYPE = 4;
+    public static final int BOOL = 5;
+
+    public static final long UNDEFINED = pack(UNDEFINED_TYPE, 0);
+
+    static {
+        //The type numbers must follow ExpressionType
+        assert ExpressionType.values()[PIXEL] == ExpressionType.PIXEL
+                && ExpressionType.values()[PERCENTAGE] == ExpressionType.PERCENTAGE
+                && ExpressionType.values()[COLOR] == ExpressionType.COLOR
+                && ExpressionType.values()[SCALAR] == ExpressionType.SCALAR
+                && ExpressionType.values()[UNDEFINED_TYPE] == ExpressionType.UNDEFINED
+                && ExpressionType.values()[BOOL] == ExpressionType.BOOL;
+    }
+
+    private Values() { }
+
+    public static long pack(int type, int value) {
+        return ((long) type << 32) | (value & 0xffffffffL);
+    }
+
+    public static int type(long value) {
+        return (int) (value >>> 32);
+    }
+
+    public static int value(long value) {
+        return (int) value;
+    }
+
+    public static long of(Literal literal) {
+        if (literal instanceof PixelLiteral) {
+            return pack(PIXEL, ((PixelLiteral) literal).value);
+        } else if (literal instanceof PercentageLiteral) {
+            return pack(PERCENTAGE, ((PercentageLiteral) literal).value);
+        } else if (literal instanceof ScalarLiteral) {
+            return pack(SCALAR, ((ScalarLiteral) literal).value);
+        } else if (literal instanceof ColorLiteral) {
+            return pack(COLOR, parseColor(((ColorLiteral) literal).value));
+        } else if (literal instanceof BoolLiteral) {
+            return pack(BOOL, ((BoolLiteral) literal).value ? 1 : 0);
+        }
+        return UNDEFINED;
+    }
+
+    //Colors come back as #rrggbb in lower case, as the parser only accepts those; null for UNDEFINED
+    public static Literal toLiteral(long value) {
+        switch (type(value)) {
+            case PIXEL:
+                return new PixelLiteral(value(value));
+            case PERCENTAGE:
+                return new PercentageLiteral(value(value));
+            case SCALAR:
+                return new ScalarLiteral(value(value));
+            case COLOR:
+                return new ColorLiteral(formatColor(value(value)));
+            case BOOL:
+                return new BoolLiteral(value(value) != 0);
+            default:
+                return null;
+        }
+    }
+
+    //#rrggbb, without the substring and boxing of Integer.parseInt and String.format
+    private static int parseColor(String color) {
+        int rgb = 0;
+        for (int i = 1; i < color.length(); i++) {
+            rgb = rgb << 4 | Character.digit(color.charAt(i), 16);
+        }
+        return rgb;
+    }
+
+    private static String formatColor(int rgb) {
+        char[] color = new char[7];
+        color[0] = '#';
+        for (int i = 6; i > 0; i--) {
+            color[i] = Character.forDigit(rgb & 0xf, 16);
+            rgb >>>= 4;
+        }
+        return new String(color);
+    }
+
+    //Pixels, percentages or scalars, both of the same type
+    public static long add(long left, long right) {
+        int type = type(left);
+        return type == type(right) && isNumber(type) ? pack(type, value(left) + value(right)) : UNDEFINED;
+    }
+
+    public static long subtract(long left, long right) {
+        int type = type(left);
+        return type == type(right) && isNumber(type) ? pack(type, value(left) - value(right)) : UNDEFINED;
+    }
+
+    //At least one scalar; the result has the type of the other operand
+    public static long multiply(long left, long right) {
+        if (type(left) == SCALAR && type(right) != SCALAR) {
+            long swap = left;
+            left = right;
+            right = swap;
+        }
+        int type = type(left);
+        return type(right) == SCALAR && isNumber(type) ? pack(type, value(left) * value(right)) : UNDEFINED;
+    }
+
+    private static boolean isNumber(int type) {
+        return type == PIXEL || type == PERCENTAGE || type == SCALAR;
+    }
+}
@@ -0,0 +1,272 @@
+package nl.han.ica.icss.workload;
+
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates valid ICSS for load and scaling tests. The output only depends on the seed and
+ * the settings, so a failing run can always be reproduced.
+ *
+ * Every generated stylesheet passes the Checker: variables are assigned before they are used
+ * and only referenced in scope, expressions are well typed and properties get a value of
+ * the right type.
+ */
+public class WorkloadGenerator {
+
+    private static final String[] TAGS = {"p", "a", "div", "span", "ul", "li", "h1", "h2", "section", "footer"};
+    private static final String[] SIZE_PROPERTIES = {"width", "height"};
+    private static final String[] COLOR_PROPERTIES = {"color", "background-color"};
+
+    private final Random random;
+
+    private int rules = 100;
+    private int globals = 8;
+    private int declarations = 6;
+    private int nestingDepth = 2;
+    private int expressionLength = 3;
+    private double variableDensity = 0.3;
+    private int distinctBodies = 0;
+
+    //Variables in scope per type, innermost scope first
+    private LinkedList<Map<ExpressionType, List<String>>> scopes;
+    private int variableCounter;
+    private List<String> bodies;
+
+    public WorkloadGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    //Number of top-level style rules
+    public WorkloadGenerator setRules(int rules) {
+        this.rules = rules;
+        return this;
+    }
+
+    //Number of global variables assigned at the top of the stylesheet
+    public WorkloadGenerator setGlobals(int globals) {
+        this.globals = globals;
+        return this;
+    }
+
+    //Maximum number of statements in a single body
+    public WorkloadGenerator setDeclarations(int declarations) {
+        this.declarations = declarations;
+        return this;
+    }
+
+    //Maximum depth of nested if/else clauses inside a style rule
+    public WorkloadGenerator setNestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+        return this;
+    }
+
+    //Maximum number of terms in a +/- chain
+    public WorkloadGenerator setExpressionLength(int expressionLength) {
+        this.expressionLength = expressionLength;
+        return this;
+    }
+
+    //Chance (0..1) that a value is a variable reference, and that a statement is an assignment
+    public WorkloadGenerator setVariableDensity(double variableDensity) {
+        this.variableDensity = variableDensity;
+        return this;
+    }
+
+    //Number of different rule bodies, repeated under different selectors as in generated themes; 0 for all different
+    public WorkloadGenerator setDistinctBodies(int distinctBodies) {
+        this.distinctBodies = distinctBodies;
+        return this;
+    }
+
+    public String generate() {
+        StringBuilder builder = new StringBuilder();
+        generate(builder);
+        return builder.toString();
+    }
+
+    public void generate(StringBuilder builder) {
+        scopes = new LinkedList<>();
+        variableCounter = 0;
+        bodies = new ArrayList<>();
+        scopes.addFirst(new EnumMap<>(ExpressionType.class));
+
+        ExpressionType[] types = {ExpressionType.PIXEL, ExpressionType.PERCENTAGE, ExpressionType.COLOR,
+                ExpressionType.SCALAR, ExpressionType.BOOL};
+        for (int i = 0; i < globals; i++) {
+            variableAssignment(builder, types[i % types.length], "");
+        }
+        builder.append('\n');
+
+        for (int i = 0; i < rules; i++) {
+            //Some globals are (re)defined between the rules, as in hand written themes
+            if (random.nextDouble() < variableDensity / 10) {
+                variableAssignment(builder, types[random.nextInt(types.length)], "");
+            }
+            stylerule(builder, i);
+        }
+        scopes.removeFirst();
+    }
+
+    private void stylerule(StringBuilder builder, int index) {
+        switch (random.nextInt(3)) {
+            case 0:
+                builder.append(TAGS[random.nextInt(TAGS.length)]);
+                break;
+            case 1:
+                builder.append("#id-").append(index);
+                break;
+            default:
+                builder.append(".class-").append(index);
+                break;
+        }
+        builder.append(" {\n");
+        if (distinctBodies == 0) {
+            body(builder, 1);
+        } else if (bodies.size() < distinctBodies) {
+            //A body only refers to globals assigned before it, which stay in scope for later rules
+            StringBuilder body = new StringBuilder();
+            body(body, 1);
+            bodies.add(body.toString());
+            builder.append(body);
+        } else {
+            builder.append(bodies.get(random.nextInt(bodies.size())));
+        }
+        builder.append("}\n");
+    }
+
+    private void body(StringBuilder builder, int depth) {
+        scopes.addFirst(new EnumMap<>(ExpressionType.class));
+        String indent = "  ".repeat(depth);
+
+        int statements = 1 + random.nextInt(declarations);
+        for (int i = 0; i < statements; i++) {
+            double choice = random.nextDouble();
+            if (choice < variableDensity / 2) {
+                ExpressionType type = random.nextBoolean() ? ExpressionType.PIXEL : ExpressionType.COLOR;
+                variableAssignment(builder, type, indent);
+            } else if (choice < 0.8 || depth > nestingDepth) {
+                declaration(builder, indent);
+            } else {
+                ifClause(builder, depth, indent);
+            }
+        }
+        scopes.removeFirst();
+    }
+
+    private void ifClause(StringBuilder builder, int depth, String indent) {
+        builder.append(indent).append("if[");
+        value(builder, ExpressionType.BOOL);
+        builder.append("] {\n");
+        body(builder, depth + 1);
+        builder.append(indent).append('}');
+        if (random.nextBoolean()) {
+            builder.append(" else {\n");
+            body(builder, depth + 1);
+            builder.append(indent).append('}');
+        }
+        builder.append('\n');
+    }
+
+    private void declaration(StringBuilder builder, String indent) {
+        builder.append(indent);
+        if (random.nextBoolean()) {
+            builder.append(SIZE_PROPERTIES[random.nextInt(SIZE_PROPERTIES.length)]).append(": ");
+            expression(builder, random.nextBoolean() ? ExpressionType.PIXEL : ExpressionType.PERCENTAGE);
+        } else {
+            builder.append(COLOR_PROPERTIES[random.nextInt(COLOR_PROPERTIES.length)]).append(": ");
+            expression(builder, ExpressionType.COLOR);
+        }
+        builder.append(";\n");
+    }
+
+    private void variableAssignment(StringBuilder builder, ExpressionType type, String indent) {
+        String name = variableName(type);
+        builder.append(indent).append(name).append(" := ");
+        expression(builder, type);
+        builder.append(";\n");
+        //Only visible after its own assignment
+        scopes.getFirst().computeIfAbsent(type, t -> new ArrayList<>()).add(name);
+    }
+
+    private String variableName(ExpressionType type) {
+        String prefix = type.name().charAt(0) + type.name().substring(1).toLowerCase();
+        return prefix + "Var" + (variableCounter++);
+    }
+
+    //A chain of terms for numeric types, a single value for colors and booleans
+    private void expression(StringBuilder builder, ExpressionType type) {
+        if (type == ExpressionType.COLOR || type == ExpressionType.BOOL) {
+            value(builder, type);
+            return;
+        }
+        int terms = 1 + random.nextInt(expressionLength);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                builder.append(random.nextBoolean() ? " + " : " - ");
+            }
+            term(builder, type);
+        }
+    }
+
+    private void term(StringBuilder builder, ExpressionType type) {
+        if (random.nextInt(3) != 0) {
+            value(builder, type);
+        } else if (random.nextBoolean()) {
+            value(builder, type);
+            builder.append(" * ");
+            value(builder, ExpressionType.SCALAR);
+        } else {
+            value(builder, ExpressionType.SCALAR);
+            builder.append(" * ");
+            value(builder, type);
+        }
+    }
+
+    private void value(StringBuilder builder, ExpressionType type) {
+        if (random.nextDouble() < variableDensity) {
+            String variable = variableInScope(type);
+            if (variable != null) {
+                builder.append(variable);
+                return;
+            }
+        }
+        switch (type) {
+            case PIXEL:
+                builder.append(random.nextInt(1000)).append("px");
+                break;
+            case PERCENTAGE:
+                builder.append(random.nextInt(101)).append('%');
+                break;
+            case SCALAR:
+                builder.append(1 + random.nextInt(9));
+                break;
+            case COLOR:
+                builder.append('#').append(String.format("%06x", random.nextInt(0x1000000)));
+                break;
+            default:
+                builder.append(random.nextBoolean() ? "TRUE" : "FALSE");
+                break;
+        }
+    }
+
+    private String variableInScope(ExpressionType type) {
+        //Prefer the innermost scope, but reach out to the globals as well
+        for (Map<ExpressionType, List<String>> scope : scopes) {
+            List<String> names = scope.get(type);
+            if (names != null && !names.isEmpty() && random.nextBoolean()) {
+                return names.get(random.nextInt(names.size()));
+            }
+        }
+        List<String> globalNames = scopes.getLast().get(type);
+        if (globalNames != null && !globalNames.isEmpty()) {
+            return globalNames.get(random.nextInt(globalNames.size()));
+        }
+        return null;
+    }
+}
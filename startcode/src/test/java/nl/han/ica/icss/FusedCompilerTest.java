@@ -0,0 +1,71 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FusedCompilerTest {
+
+	String readResource(String resource) throws IOException {
+		try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	void assertSameResult(String input) {
+		CompilationResult expected = new Pipeline().compile(input);
+		CompilationResult fused = new Pipeline().setFused(true).compile(input);
+		assertEquals(expected.getErrors(), fused.getErrors());
+		assertEquals(expected.getCss(), fused.getCss());
+	}
+
+	@Test
+	void testLevels() throws IOException {
+		for (String level : List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss")) {
+			assertSameResult(readResource(level));
+		}
+	}
+
+	@Test
+	void testGenerated() {
+		for (long seed = 0; seed < 10; seed++) {
+			assertSameResult(new WorkloadGenerator(seed).setRules(300).setNestingDepth(3).generate());
+		}
+	}
+
+	@Test
+	void testErrors() {
+		assertSameResult("a { color: #ff0000; }\np { width: Undefined; }\nb { color: #00ff00; }");
+		assertSameResult("A := 10px;\np { width: A + 5%; height: 2 * #ffffff; color: 3px; if [A] { width: 2px * 3px; } }");
+		//Errors in branches that are not taken, and in scopes that have ended
+		assertSameResult("p { if [FALSE] { B := 1px; width: B + TRUE; } else { width: B; } }\na { width: B; }");
+		assertFalse(new Pipeline().setFused(true).compile("p { width: Undefined; }").isSuccess());
+	}
+
+	@Test
+	void testWritesRulesBeforeTheFirstError() throws IOException {
+		StringBuilder css = new StringBuilder();
+		CompilationResult result = new Pipeline().setFused(true)
+				.compile("a { color: #ff0000; }\np { width: Undefined; }\nb { color: #00ff00; }", css);
+		assertFalse(result.isSuccess());
+		assertEquals("a {\n  color: #ff0000;\n}\n\n", css.toString());
+	}
+
+	@Test
+	void testLeavesOutTheRuleWithTheError() throws IOException {
+		//The error comes after a declaration, and in an if clause after the declarations of its rule
+		for (String rule : List.of("p { color: #00ff00; width: Undefined; height: 10px; }",
+				"p { color: #00ff00; if [TRUE] { width: 2px * 3px; } height: 10px; }")) {
+			StringBuilder css = new StringBuilder();
+			CompilationResult result = new Pipeline().setFused(true).compile("a { color: #ff0000; }\n" + rule, css);
+			assertFalse(result.isSuccess());
+			assertEquals("a {\n  color: #ff0000;\n}\n\n", css.toString());
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineTest {
+
+	String readResource(String resource) throws IOException {
+		try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	//The step by step route the GUI takes
+	String compileStepByStep(String input) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(input);
+		assertTrue(pipeline.isParsed());
+		assertTrue(pipeline.check());
+		pipeline.transform();
+		return pipeline.generate();
+	}
+
+	@Test
+	void testScopes() {
+		//An assignment in an if body only holds inside it, for the Checker as well as the Evaluator
+		String input = "X := 1px;\np {\n  X := 2px;\n  if[TRUE] {\n    X := 3px;\n    width: X;\n  }\n  height: X;\n}\na {\n  width: X;\n}\n";
+		assertEquals("p {\n  height: 2px;\n  width: 3px;\n}\n\na {\n  width: 1px;\n}\n\n", new Pipeline().compile(input).getCss());
+	}
+
+	@Test
+	void testCompileMatchesStepByStep() throws IOException {
+		Pipeline pipeline = new Pipeline();
+		for (String level : List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss")) {
+			String input = readResource(level);
+			CompilationResult result = pipeline.compile(input);
+			assertTrue(result.isSuccess());
+			assertEquals(compileStepByStep(input), result.getCss());
+		}
+	}
+
+	@Test
+	void testCompileReportsErrors() {
+		Pipeline pipeline = new Pipeline();
+
+		CompilationResult syntaxError = pipeline.compile("p { width: 10px ");
+		assertFalse(syntaxError.isSuccess());
+		assertNull(syntaxError.getCss());
+
+		CompilationResult semanticError = pipeline.compile("p { width: #ff0000; }");
+		assertEquals(1, semanticError.getErrors().size());
+		assertNull(semanticError.getCss());
+	}
+
+	@Test
+	void testCompileConcurrently() throws Exception {
+		Pipeline pipeline = new Pipeline();
+		List<String> inputs = new ArrayList<>();
+		for (long seed = 0; seed < 16; seed++) {
+			inputs.add(new WorkloadGenerator(seed).setRules(50).generate());
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<CompilationResult>> futures = new ArrayList<>();
+			for (String input : inputs) {
+				futures.add(pool.submit(() -> pipeline.compile(input)));
+			}
+			for (int i = 0; i < inputs.size(); i++) {
+				assertEquals(compileStepByStep(inputs.get(i)), futures.get(i).get().getCss());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCompilerTest {
+
+	String readResource(String resource) throws IOException {
+		try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	void assertSameOutput(String input) throws IOException {
+		StringWriter output = new StringWriter();
+		List<String> errors = new StreamingCompiler().compile(new StringReader(input), output);
+		assertEquals(List.of(), errors);
+		assertEquals(new Pipeline().compile(input).getCss(), output.toString());
+	}
+
+	@Test
+	void testLevels() throws IOException {
+		for (String level : List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss")) {
+			assertSameOutput(readResource(level));
+		}
+	}
+
+	@Test
+	void testGenerated() throws IOException {
+		for (long seed = 0; seed < 10; seed++) {
+			assertSameOutput(new WorkloadGenerator(seed).setRules(300).setNestingDepth(3).generate());
+		}
+	}
+
+	@Test
+	void testErrors() throws IOException {
+		String input = "a { color: #ff0000; }\np { width: Undefined; }\nb { color: #00ff00; }";
+		StringWriter output = new StringWriter();
+		List<String> semantic = new StreamingCompiler().compile(new StringReader(input), output);
+		assertEquals(new Pipeline().compile(input).getErrors(), semantic);
+		assertEquals("a {\n  color: #ff0000;\n}\n\n", output.toString());
+
+		List<String> syntax = new StreamingCompiler().compile(new StringReader("p { width: 10px "), new StringWriter());
+		assertFalse(syntax.isEmpty());
+	}
+}
@@ -0,0 +1,57 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateTest {
+
+	static final String THEME = "LinkColor := #ff0000;\nParWidth := 500px;\nUseLinkColor := TRUE;\n"
+			+ "a { color: LinkColor; if [UseLinkColor] { background-color: LinkColor; } else { background-color: #ffffff; } width: ParWidth; }\n"
+			+ "p { width: ParWidth * 2 - 10px; }\n";
+
+	AST checked(String input) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(input);
+		assertTrue(pipeline.check());
+		return pipeline.getAST();
+	}
+
+	@Test
+	void testSameAsPipeline() {
+		for (long seed = 0; seed < 10; seed++) {
+			String input = new WorkloadGenerator(seed).setRules(200).setNestingDepth(3).generate();
+			AST ast = checked(input);
+			Template template = new Template(ast);
+			assertEquals(new Pipeline().compile(input).getCss(), template.render(Map.of()));
+			//Rendering leaves the AST as it was parsed
+			assertEquals(checked(input), ast);
+		}
+	}
+
+	@Test
+	void testOverrides() {
+		Template template = new Template(checked(THEME));
+		String expected = new Pipeline().compile(THEME.replace("#ff0000", "#00ff00").replace("TRUE", "FALSE")).getCss();
+		assertEquals(expected, template.render(Map.of("LinkColor", new ColorLiteral("#00ff00"), "UseLinkColor", new BoolLiteral(false))));
+		assertEquals(new Pipeline().compile(THEME).getCss(), template.render(Map.of()));
+	}
+
+	@Test
+	void testInvalidOverrides() {
+		Template template = new Template(checked(THEME));
+		assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("Unknown", new PixelLiteral(1))));
+		assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("ParWidth", new ColorLiteral("#000000"))));
+		//Colors that the parser would not accept
+		for (String color : new String[] {"#fff", "red", "#FF0000", "#00ff00 "}) {
+			assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("LinkColor", new ColorLiteral(color))));
+		}
+	}
+}
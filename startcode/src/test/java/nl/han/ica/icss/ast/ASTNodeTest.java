@@ -0,0 +1,71 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTNodeTest {
+
+	void assertSameChildren(ASTNode node) {
+		List<ASTNode> children = node.getChildren();
+		assertEquals(children.size(), node.getChildCount(), node.getNodeLabel());
+		for (int i = 0; i < children.size(); i++) {
+			assertSame(children.get(i), node.getChild(i));
+			assertSameChildren(children.get(i));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> node.getChild(children.size()));
+	}
+
+	@Test
+	void testChildrenOneByOne() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(new WorkloadGenerator(3).setRules(200).setNestingDepth(3).generate());
+		for (AST ast : List.of(Fixtures.uncheckedLevel3(), pipeline.getAST())) {
+			assertSameChildren(ast.root);
+		}
+		//Optional children that are not set yet
+		assertSameChildren(new Declaration().addChild(new PropertyName("width")));
+		assertSameChildren(new AddOperation().addChild(new PixelLiteral(1)));
+	}
+
+	int countLiterals(ASTNode node, ASTVisitor<Boolean> isLiteral) {
+		int count = node.accept(isLiteral) ? 1 : 0;
+		for (int i = 0; i < node.getChildCount(); i++) {
+			count += countLiterals(node.getChild(i), isLiteral);
+		}
+		return count;
+	}
+
+	int countLiterals(ASTNode node) {
+		int count = node instanceof Literal ? 1 : 0;
+		for (ASTNode child : node.getChildren()) {
+			count += countLiterals(child);
+		}
+		return count;
+	}
+
+	@Test
+	void testVisitorFallsBackToSuperclass() {
+		ASTVisitor<Boolean> isLiteral = new ASTVisitor<>() {
+			@Override
+			public Boolean visitNode(ASTNode node) {
+				return false;
+			}
+			@Override
+			public Boolean visitLiteral(Literal literal) {
+				return true;
+			}
+		};
+		AST ast = Fixtures.uncheckedLevel3();
+		assertEquals(countLiterals(ast.root), countLiterals(ast.root, isLiteral));
+		assertTrue(countLiterals(ast.root) > 0);
+		assertNull(new PixelLiteral(1).accept(new ASTVisitor<>() { }));
+	}
+}
@@ -0,0 +1,62 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+
+	@Test
+	void testInterning() {
+		int id = SymbolTable.intern(new String("SymbolTableTestVar"));
+		assertEquals(id, SymbolTable.intern("SymbolTableTestVar"));
+		assertEquals("SymbolTableTestVar", SymbolTable.name(id));
+		assertEquals(SymbolTable.intern("width"), new PropertyName("width").id);
+	}
+
+	@Test
+	void testCollectedNamesAreReleased() {
+		String kept = SymbolTable.share(new String("SymbolTableTestKept"));
+		SymbolTable.Symbol symbol = SymbolTable.symbol(new String("SymbolTableTestCollected"));
+		int id = symbol.id;
+		int before = SymbolTable.size();
+
+		//Clears and enqueues the name as the garbage collector would
+		symbol.enqueue();
+		assertTrue(SymbolTable.size() < before);
+		assertNull(SymbolTable.name(id));
+
+		//The id is given to a later name; the new names are kept so none of them is collected
+		List<String> later = new ArrayList<>();
+		boolean reused = false;
+		for (int i = 0; i <= before && !reused; i++) {
+			String name = SymbolTable.share("SymbolTableTestLater" + i);
+			later.add(name);
+			reused = SymbolTable.intern(name) == id;
+		}
+		assertTrue(reused);
+		assertSame(later.get(later.size() - 1), SymbolTable.name(id));
+		assertSame(kept, SymbolTable.name(SymbolTable.intern("SymbolTableTestKept")));
+	}
+
+	@Test
+	void testParsesShareNames() {
+		Pipeline first = new Pipeline();
+		first.parseString("Width := 10px;\np { width: Width; }\n");
+		Pipeline second = new Pipeline();
+		second.parseString("Width := 20px;\na { width: Width; }\n");
+
+		VariableAssignment a = (VariableAssignment) first.getAST().root.body.get(0);
+		VariableAssignment b = (VariableAssignment) second.getAST().root.body.get(0);
+		assertSame(a.name.name, b.name.name);
+		assertEquals(a.name, b.name);
+
+		Declaration declaration = (Declaration) ((Stylerule) first.getAST().root.body.get(1)).body.get(0);
+		assertSame(a.name.name, ((VariableReference) declaration.expression).name);
+		assertNotEquals(declaration.property, new PropertyName("height"));
+	}
+}
@@ -0,0 +1,99 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.checker.PropertyRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompilationCacheTest {
+
+	static final String VALID = "Width := 10px;\np { width: Width * 2; }\n";
+	static final String INVALID = "p { width: Missing; }\n";
+
+	@Test
+	void testHitReturnsSameResult() {
+		Pipeline pipeline = new Pipeline();
+		CompilationCache cache = new CompilationCache(1024 * 1024);
+
+		CompilationResult first = cache.compile(pipeline, VALID);
+		CompilationResult second = cache.compile(pipeline, VALID);
+		assertEquals(pipeline.compile(VALID).getCss(), second.getCss());
+		assertEquals(first.getCss(), second.getCss());
+
+		CompilationResult error = cache.compile(pipeline, INVALID);
+		assertEquals(pipeline.compile(INVALID).getErrors(), cache.compile(pipeline, INVALID).getErrors());
+		assertFalse(error.isSuccess());
+
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	void testEvictsLeastRecentlyUsed() {
+		Pipeline pipeline = new Pipeline();
+		CompilationCache cache = new CompilationCache(600);
+		for (int i = 0; i < 10; i++) {
+			cache.compile(pipeline, "p { width: " + i + "px; }\n");
+		}
+		assertTrue(cache.getBytes() <= 600);
+		assertTrue(cache.size() < 10);
+
+		//The most recent entry is still there, the first is gone
+		cache.compile(pipeline, "p { width: 9px; }\n");
+		assertEquals(1, cache.getHits());
+		cache.compile(pipeline, "p { width: 0px; }\n");
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	void testPersistence(@TempDir Path directory) throws IOException {
+		Pipeline pipeline = new Pipeline();
+		CompilationCache cache = new CompilationCache(1024 * 1024, directory);
+		String css = cache.compile(pipeline, VALID).getCss();
+		cache.compile(pipeline, INVALID);
+
+		CompilationCache reloaded = new CompilationCache(1024 * 1024, directory);
+		assertEquals(2, reloaded.size());
+		assertEquals(css, reloaded.compile(pipeline, VALID).getCss());
+		assertEquals(pipeline.compile(INVALID).getErrors(), reloaded.compile(pipeline, INVALID).getErrors());
+		assertEquals(2, reloaded.getHits());
+	}
+
+	@Test
+	void testRegistryIsPartOfKey() throws IOException {
+		CompilationCache cache = new CompilationCache(1024 * 1024);
+		String gap = "p { gap: 2px; }\n";
+		assertFalse(cache.compile(new Pipeline(), gap).isSuccess());
+		Pipeline pipeline = new Pipeline().setProperties(PropertyRegistry.load(new StringReader("gap = PIXEL\n")));
+		assertTrue(cache.compile(pipeline, gap).isSuccess());
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	void testStaleFiles(@TempDir Path directory) throws IOException {
+		Path orphan = Files.writeString(directory.resolve("orphan.tmp"), "partial");
+		Files.setLastModifiedTime(orphan, FileTime.fromMillis(System.currentTimeMillis() - 2 * 60 * 60 * 1000));
+		Path writing = Files.writeString(directory.resolve("writing.tmp"), "partial");
+		//An entry of an older version, keyed by the source alone
+		Path old = Files.write(directory.resolve(CompilationCache.hash(VALID) + ".cache"), new byte[] {0, 0, 0, 1, 0, 0, 0, 0, 0});
+
+		CompilationCache cache = new CompilationCache(1024 * 1024, directory);
+		assertFalse(Files.exists(orphan));
+		assertTrue(Files.exists(writing));
+		assertFalse(Files.exists(old));
+		assertEquals(0, cache.size());
+
+		cache.compile(new Pipeline(), VALID);
+		assertEquals(0, cache.getHits());
+		assertFalse(Files.exists(old));
+	}
+}
@@ -0,0 +1,41 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.SymbolTable;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertyRegistryTest {
+
+	@Test
+	void testDefault() {
+		PropertyRegistry registry = PropertyRegistry.getDefault();
+		int width = SymbolTable.intern("width");
+		assertTrue(registry.allows(width, ExpressionType.PIXEL));
+		assertTrue(registry.allows(width, ExpressionType.PERCENTAGE));
+		assertFalse(registry.allows(width, ExpressionType.COLOR));
+		assertTrue(registry.allows(SymbolTable.intern("margin-left"), ExpressionType.PIXEL));
+		assertFalse(registry.isKnown(SymbolTable.intern("no-such-property")));
+		assertEquals(PropertyRegistry.UNKNOWN_PROPERTY, registry.getMessage(SymbolTable.intern("no-such-property")));
+	}
+
+	@Test
+	void testCheckerUsesRegistry() throws IOException {
+		String input = "p { margin: 10px; border-color: 10px; }\n";
+		List<String> errors = new Pipeline().compile(input).getErrors();
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0).contains("border-color"), errors.get(0));
+
+		PropertyRegistry registry = PropertyRegistry.load(new StringReader("margin = PIXEL\nborder-color = COLOR, PIXEL\n"));
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(input);
+		new Checker(registry).check(pipeline.getAST());
+		assertTrue(pipeline.getAST().getErrors().isEmpty());
+	}
+}
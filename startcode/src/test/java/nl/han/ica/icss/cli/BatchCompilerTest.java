@@ -0,0 +1,106 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompilationCache;
+import nl.han.ica.icss.checker.PropertyRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCompilerTest {
+
+	static final String VALID = "Width := 10px;\np { width: Width * 2; }\n";
+	static final String INVALID = "p { width: Missing; }\n";
+
+	//Writes a valid and an invalid file, and a stale output for the invalid one
+	void writeInput(Path input, Path output) throws IOException {
+		Files.createDirectories(input.resolve("sub"));
+		Files.writeString(input.resolve("sub/valid.icss"), VALID);
+		Files.writeString(input.resolve("invalid.icss"), INVALID);
+		Files.writeString(output.resolve("invalid.css"), "stale");
+	}
+
+	void assertOutput(List<BatchCompiler.FileResult> results, Path output) throws IOException {
+		assertEquals(2, results.size());
+		BatchCompiler.FileResult invalid = results.get(0);
+		BatchCompiler.FileResult valid = results.get(1);
+
+		assertTrue(invalid.file.endsWith("invalid.icss"));
+		assertEquals(new Pipeline().compile(INVALID).getErrors(), invalid.errors);
+		assertFalse(Files.exists(output.resolve("invalid.css")));
+
+		assertTrue(valid.isSuccess());
+		assertEquals(new Pipeline().compile(VALID).getCss(), Files.readString(output.resolve("sub/valid.css")));
+		assertFalse(BatchCompiler.report(results, 0));
+	}
+
+	@Test
+	void testCompileAll(@TempDir Path input, @TempDir Path output) throws IOException, InterruptedException {
+		writeInput(input, output);
+		assertOutput(new BatchCompiler(input, output, 2).compileAll(), output);
+	}
+
+	@Test
+	void testStreaming(@TempDir Path input, @TempDir Path output) throws IOException, InterruptedException {
+		writeInput(input, output);
+		BatchCompiler compiler = new BatchCompiler(input, output, 2);
+		compiler.streamingThreshold = 0;
+		assertOutput(compiler.compileAll(), output);
+	}
+
+	@Test
+	void testCache(@TempDir Path input, @TempDir Path output) throws IOException, InterruptedException {
+		writeInput(input, output);
+		CompilationCache cache = new CompilationCache(1024 * 1024);
+		assertOutput(new BatchCompiler(input, output, 2, cache).compileAll(), output);
+
+		Files.writeString(output.resolve("invalid.css"), "stale");
+		Files.delete(output.resolve("sub/valid.css"));
+		assertOutput(new BatchCompiler(input, output, 2, cache).compileAll(), output);
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	void testFailureDeletesPartialOutput(@TempDir Path input, @TempDir Path output) throws IOException, InterruptedException {
+		//A valid rule, then bytes that are not UTF-8, so reading fails after output was written
+		byte[] valid = "p { width: 10px; }\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = Arrays.copyOf(valid, valid.length + 2);
+		bytes[valid.length] = (byte) 0xff;
+		bytes[valid.length + 1] = (byte) 0xfe;
+		Files.write(input.resolve("broken.icss"), bytes);
+
+		BatchCompiler compiler = new BatchCompiler(input, output, 1);
+		compiler.streamingThreshold = 0;
+		assertFalse(compiler.compileAll().get(0).isSuccess());
+		assertFalse(Files.exists(output.resolve("broken.css")));
+	}
+
+	@Test
+	void testProperties(@TempDir Path input, @TempDir Path output) throws IOException, InterruptedException {
+		Files.writeString(input.resolve("gap.icss"), "p { gap: 2px; }\n");
+		assertFalse(new BatchCompiler(input, output, 2).compileAll().get(0).isSuccess());
+
+		PropertyRegistry properties = PropertyRegistry.load(new StringReader("gap = PIXEL\n"));
+		assertTrue(new BatchCompiler(input, output, 2, null, properties).compileAll().get(0).isSuccess());
+		assertEquals("p {\n  gap: 2px;\n}\n\n", Files.readString(output.resolve("gap.css")));
+
+		BatchCompiler streaming = new BatchCompiler(input, output, 2, null, properties);
+		streaming.streamingThreshold = 0;
+		assertTrue(streaming.compileAll().get(0).isSuccess());
+	}
+
+	@Test
+	void testReport() {
+		assertTrue(BatchCompiler.report(List.of(new BatchCompiler.FileResult(Path.of("a.icss"), 0, List.of())), 0));
+	}
+}
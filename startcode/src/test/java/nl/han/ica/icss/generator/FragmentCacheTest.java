@@ -0,0 +1,50 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FragmentCacheTest {
+
+	@Test
+	void testSameOutputAsWithoutCache() {
+		String input = new WorkloadGenerator(3).setRules(500).setDistinctBodies(10).generate();
+		FragmentCache fragments = new FragmentCache();
+		String expected = new Pipeline().compile(input).getCss();
+		assertEquals(expected, new Pipeline(fragments).compile(input).getCss());
+
+		//Evaluated bodies can still differ through an if clause, but most are repeated
+		assertTrue(fragments.getHits() > 400);
+		assertEquals(500, fragments.getHits() + fragments.getMisses());
+	}
+
+	@Test
+	void testDifferentValuesAreNotShared() {
+		FragmentCache fragments = new FragmentCache();
+		Pipeline pipeline = new Pipeline(fragments);
+		String css = pipeline.compile("p { width: 10px; }\na { width: 10%; }\nb { width: 10px; }\n").getCss();
+		assertEquals("p {\n  width: 10px;\n}\n\na {\n  width: 10%;\n}\n\nb {\n  width: 10px;\n}\n\n", css);
+		assertEquals(1, fragments.getHits());
+		assertEquals(2, fragments.size());
+	}
+
+	@Test
+	void testChangingTheASTAfterwards() {
+		FragmentCache fragments = new FragmentCache();
+		Pipeline pipeline = new Pipeline(fragments);
+		CompilationResult result = pipeline.compile("p { width: 10px; }\n");
+
+		//The key is a copy, so changing the returned AST does not change the cached body
+		Stylerule rule = (Stylerule) result.getAST().root.body.get(0);
+		((Declaration) rule.body.get(0)).expression = new PixelLiteral(20);
+		assertEquals("p {\n  width: 10px;\n}\n\n", pipeline.compile("p { width: 10px; }\n").getCss());
+		assertEquals("a {\n  width: 20px;\n}\n\n", pipeline.compile("a { width: 20px; }\n").getCss());
+		assertEquals(1, fragments.getHits());
+	}
+}
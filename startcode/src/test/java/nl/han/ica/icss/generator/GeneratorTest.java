@@ -0,0 +1,58 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneratorTest {
+
+	//An evaluated AST with a non-ASCII selector and numbers of every sign and size
+	AST evaluated() {
+		ArrayList<ASTNode> body = new ArrayList<>();
+		body.add(new Declaration("width").addChild(new PixelLiteral(-120)));
+		body.add(new Declaration("height").addChild(new PercentageLiteral(Integer.MIN_VALUE)));
+		body.add(new Declaration("color").addChild(new ColorLiteral("#00ff7f")));
+		body.add(new Declaration("opacity").addChild(new ScalarLiteral(0)));
+		ArrayList<ASTNode> other = new ArrayList<>();
+		other.add(new Declaration("width").addChild(new PixelLiteral(Integer.MAX_VALUE)));
+
+		Stylesheet stylesheet = new Stylesheet();
+		stylesheet.addChild(new Stylerule(new TagSelector("straße"), body));
+		stylesheet.addChild(new Stylerule(new TagSelector("日本"), other));
+		return new AST(stylesheet);
+	}
+
+	@Test
+	void testWriter() throws IOException {
+		AST ast = evaluated();
+		String expected = new Generator().generate(ast);
+		assertTrue(expected.contains("width: -120px;\n  height: -2147483648%;"));
+		assertTrue(expected.contains("width: 2147483647px;"));
+
+		StringWriter writer = new StringWriter();
+		new Generator().generate(ast, writer);
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	void testChannel() throws IOException {
+		AST ast = evaluated();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		//Everything is flushed to the channel before generate returns
+		new Generator().generate(ast, Channels.newChannel(bytes));
+		assertEquals(new Generator().generate(ast), bytes.toString(StandardCharsets.UTF_8));
+	}
+}
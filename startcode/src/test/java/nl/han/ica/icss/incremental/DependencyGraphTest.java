@@ -0,0 +1,82 @@
+package nl.han.ica.icss.incremental;
+
+import com.google.common.io.Resources;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.parser.ParserPool;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGraphTest {
+
+	Stylesheet parse(String text) {
+		return new ParserPool().parseAST(CharStreams.fromString(text), new BaseErrorListener()).root;
+	}
+
+	VariableAssignment assignment(Stylesheet stylesheet, String name) {
+		for (ASTNode statement : stylesheet.body) {
+			if (statement instanceof VariableAssignment && ((VariableAssignment) statement).name.name.equals(name)) {
+				return (VariableAssignment) statement;
+			}
+		}
+		throw new AssertionError(name);
+	}
+
+	@Test
+	void testLevel3() throws IOException {
+		Stylesheet stylesheet = parse(Resources.toString(Resources.getResource("level3.icss"), StandardCharsets.UTF_8));
+		DependencyGraph graph = new DependencyGraph(stylesheet);
+
+		//ParWidth is used by p and #menu only
+		List<ASTNode> affected = graph.getAffected(List.of(assignment(stylesheet, "ParWidth")));
+		assertEquals(2, affected.size());
+		assertSame(stylesheet.body.get(4), affected.get(0));
+		assertSame(stylesheet.body.get(6), affected.get(1));
+		assertEquals(2, graph.getReferences(assignment(stylesheet, "ParWidth")).size());
+		assertEquals(2, graph.getDeclarations(assignment(stylesheet, "ParWidth")).size());
+
+		//Every declaration in the if clause depends on its condition
+		assertEquals(3, graph.getDeclarations(assignment(stylesheet, "AdjustColor")).size());
+		assertEquals(1, graph.getDependents(assignment(stylesheet, "AdjustColor")).size());
+	}
+
+	@Test
+	void testBindings() {
+		Stylesheet stylesheet = parse("A := 1px;\nB := A + 1px;\nA := 2px;\n"
+				+ "p { width: A; }\n"
+				+ "a { A := 3px; width: A; }\n"
+				+ "b { height: B; }\n");
+		DependencyGraph graph = new DependencyGraph(stylesheet);
+		VariableAssignment first = (VariableAssignment) stylesheet.body.get(0);
+		VariableAssignment second = (VariableAssignment) stylesheet.body.get(2);
+
+		//The first A reaches only B, and through B the rule using it
+		assertEquals(List.of(stylesheet.body.get(1), stylesheet.body.get(5)), graph.getAffected(List.of(first)));
+		//The second A is shadowed in rule a
+		assertEquals(List.of(stylesheet.body.get(3)), graph.getAffected(List.of(second)));
+		assertSame(second, graph.getDefinition(stylesheet.body.get(3), "A"));
+		assertNull(graph.getDefinition(stylesheet.body.get(4), "A"));
+	}
+
+	@Test
+	void testIfBodiesShadow() {
+		Stylesheet stylesheet = parse("A := 1px;\n"
+				+ "p { if [TRUE] { A := 2px; width: A; } else { height: A; } }\n"
+				+ "a { if [TRUE] { A := 2px; } width: A; }\n");
+		DependencyGraph graph = new DependencyGraph(stylesheet);
+		VariableAssignment global = (VariableAssignment) stylesheet.body.get(0);
+		IfClause ifClause = (IfClause) ((Stylerule) stylesheet.body.get(1)).body.get(0);
+
+		//Only the else body of p and the declaration after the if body of a use the global
+		List<VariableReference> references = graph.getReferences(global);
+		assertEquals(2, references.size());
+		assertSame(((Declaration) ifClause.elseClause.body.get(0)).expression, references.get(0));
+		assertEquals(List.of("A"), List.copyOf(graph.getDefinitions(stylesheet.body.get(2)).keySet()));
+	}
+}
@@ -0,0 +1,95 @@
+package nl.han.ica.icss.incremental;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalCompilerTest {
+
+	void assertSameAsFullCompile(IncrementalCompiler compiler, String text) {
+		CompilationResult expected = new Pipeline().compile(text);
+		CompilationResult actual = compiler.compile(text);
+		assertEquals(expected.getErrors(), actual.getErrors(), text);
+		assertEquals(expected.getCss(), actual.getCss(), text);
+	}
+
+	@Test
+	void testEditsOnLevel3() {
+		IncrementalCompiler compiler = new IncrementalCompiler();
+		String text = "LinkColor := #ff0000;\nParWidth := 500px;\n\np {\n\twidth: ParWidth;\n}\na {\n\tcolor: LinkColor;\n}\n#menu {\n\twidth: ParWidth + 20px;\n}\n";
+		assertSameAsFullCompile(compiler, text);
+
+		//Change a global: only the rules using it change
+		text = text.replace("ParWidth := 500px;", "ParWidth := 200px;");
+		assertSameAsFullCompile(compiler, text);
+
+		//Edit inside a rule, then break and repair it
+		text = text.replace("color: LinkColor;", "color: #00ff00;");
+		assertSameAsFullCompile(compiler, text);
+		text = text.replace("color: #00ff00;", "color: #00ff00");
+		assertSameAsFullCompile(compiler, text);
+		text = text.replace("color: #00ff00", "color: ParWidth;");
+		assertSameAsFullCompile(compiler, text);
+		text = text.replace("color: ParWidth;", "color: LinkColor;");
+		assertSameAsFullCompile(compiler, text);
+
+		//Insert and remove statements, also without whitespace around them
+		text = text.replace("}\na {", "}.new{height: 10px;}\na {");
+		assertSameAsFullCompile(compiler, text);
+		text = text.replace("LinkColor := #ff0000;", "LinkColor := #ff0000;Extra := 5px;");
+		assertSameAsFullCompile(compiler, text);
+		text = text.replace(".new{height: 10px;}", "");
+		assertSameAsFullCompile(compiler, text);
+	}
+
+	@Test
+	void testRevisitsOnlyDependents() {
+		IncrementalCompiler compiler = new IncrementalCompiler();
+		String text = "W := 500px;\nC := #ff0000;\np { width: W; }\na { color: C; }\nb { height: 10px; }\n";
+		assertSameAsFullCompile(compiler, text);
+
+		//Only p uses W
+		text = text.replace("500px", "200px");
+		assertSameAsFullCompile(compiler, text);
+		assertEquals(1, compiler.revisited);
+
+		//Edits elsewhere do not bring p back
+		text = text.replace("10px", "20px");
+		assertSameAsFullCompile(compiler, text);
+		assertEquals(0, compiler.revisited);
+		text = text.replace("#ff0000", "#00ff00");
+		assertSameAsFullCompile(compiler, text);
+		assertEquals(1, compiler.revisited);
+		text = text.replace("20px", "30px");
+		assertSameAsFullCompile(compiler, text);
+		assertEquals(0, compiler.revisited);
+	}
+
+	@Test
+	void testRandomEdits() {
+		Random random = new Random(1);
+		String[] insertions = {"1", "px", " ", ";", "}", "p { width: 1px; }", "Var := 3px;", "#", "\n"};
+
+		for (long seed = 0; seed < 5; seed++) {
+			IncrementalCompiler compiler = new IncrementalCompiler();
+			String text = new WorkloadGenerator(seed).setRules(30).generate();
+			assertSameAsFullCompile(compiler, text);
+
+			for (int edit = 0; edit < 100; edit++) {
+				int position = random.nextInt(text.length());
+				if (random.nextBoolean()) {
+					int length = Math.min(text.length() - position, random.nextInt(8));
+					text = text.substring(0, position) + text.substring(position + length);
+				} else {
+					text = text.substring(0, position) + insertions[random.nextInt(insertions.length)] + text.substring(position);
+				}
+				assertSameAsFullCompile(compiler, text);
+			}
+		}
+	}
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.workload.WorkloadGenerator;
 
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.misc.*;
@@ -53,6 +54,39 @@ class ParserTest {
 		return listener.getAST();
 	}
 
+	AST parseTestFileDirectly(String resource) throws IOException {
+		InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource);
+		BaseErrorListener errorListener = new BaseErrorListener() {
+			public void syntaxError(Recognizer<?,?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+				fail(msg);
+			}
+		};
+		return new ParserPool().parseAST(CharStreams.fromStream(inputStream), errorListener);
+	}
+
+	@Test
+	void testParseWithoutParseTree() throws IOException {
+		assertEquals(Fixtures.uncheckedLevel0(), parseTestFileDirectly("level0.icss"));
+		assertEquals(Fixtures.uncheckedLevel1(), parseTestFileDirectly("level1.icss"));
+		assertEquals(Fixtures.uncheckedLevel2(), parseTestFileDirectly("level2.icss"));
+		assertEquals(Fixtures.uncheckedLevel3(), parseTestFileDirectly("level3.icss"));
+	}
+
+	@Test
+	void testParseWithoutParseTreeGenerated() {
+		for (long seed = 0; seed < 10; seed++) {
+			String input = new WorkloadGenerator(seed).setRules(100).setExpressionLength(5).generate();
+			ParserPool parsers = new ParserPool();
+
+			ASTListener listener = new ASTListener();
+			new ParseTreeWalker().walk(listener, parsers.parse(CharStreams.fromString(input), new BaseErrorListener()));
+			AST direct = parsers.parseAST(CharStreams.fromString(input), new BaseErrorListener());
+
+			//The labels include operators and property names, which equals does not compare
+			assertEquals(listener.getAST().toString(), direct.toString());
+		}
+	}
+
 	@Test
 	void testParseLevel0() throws IOException {
 
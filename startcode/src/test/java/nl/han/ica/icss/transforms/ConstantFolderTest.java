@@ -0,0 +1,55 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.generator.Generator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantFolderTest {
+
+	AST fold(String input) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(input);
+		assertTrue(pipeline.check());
+		new ConstantFolder().apply(pipeline.getAST());
+		return pipeline.getAST();
+	}
+
+	@Test
+	void testFoldsExpressions() {
+		AST ast = fold("W := 10px;\nF := 2;\np { width: W * F + 5px; }\n");
+		Declaration declaration = (Declaration) ((Stylerule) ast.root.body.get(2)).body.get(0);
+		assertEquals(new PixelLiteral(25).getNodeLabel(), declaration.expression.getNodeLabel());
+	}
+
+	@Test
+	void testPrunesBranches() {
+		AST ast = fold("On := FALSE;\np {\n  if[On] { width: 1px; }\n  if[On] { width: 2px; } else { width: 3px; }\n  if[TRUE] { height: 4px; } else { height: 5px; }\n}\n");
+		Stylerule rule = (Stylerule) ast.root.body.get(1);
+		//The first clause is gone, the others only keep the branch that is taken
+		assertEquals(2, rule.body.size());
+		for (ASTNode node : rule.body) {
+			IfClause ifClause = (IfClause) node;
+			assertTrue(((BoolLiteral) ifClause.conditionalExpression).value);
+			assertNull(ifClause.elseClause);
+			assertEquals(1, ifClause.body.size());
+		}
+	}
+
+	@Test
+	void testSameOutputAsWithoutFolding() {
+		String input = "X := 2px;\nOn := TRUE;\np {\n  width: X;\n  if[On] {\n    X := 3px;\n    height: X * 2;\n  } else {\n    height: X;\n  }\n  color: #ffffff;\n}\n";
+		AST folded = fold(input);
+		new Evaluator().apply(folded);
+
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(input);
+		pipeline.check();
+		new Evaluator().apply(pipeline.getAST());
+		assertEquals(new Generator().generate(pipeline.getAST()), new Generator().generate(folded));
+	}
+}
@@ -0,0 +1,59 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+	AST checked(String input) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(input);
+		assertTrue(pipeline.check());
+		return pipeline.getAST();
+	}
+
+	@Test
+	void testEvaluateSameAsApply() {
+		for (long seed = 0; seed < 10; seed++) {
+			String input = new WorkloadGenerator(seed).setRules(200).setNestingDepth(3).generate();
+			AST ast = checked(input);
+			EvaluatedStylesheet stylesheet = new Evaluator().evaluate(ast);
+			assertEquals(new Pipeline().compile(input).getCss(), new Generator().generate(stylesheet));
+			//The AST is left as it was
+			assertEquals(checked(input), ast);
+			assertEquals(stylesheet.rules.size(), new Evaluator().evaluate(ast).rules.size());
+		}
+	}
+
+	@Test
+	void testIfContentsLast() {
+		AST ast = checked("A := 1px;\np { if [TRUE] { width: A; } A := 2px; height: A; }\n");
+		EvaluatedRule rule = new Evaluator().evaluate(ast).rules.get(0);
+		assertEquals("height", rule.declarations.get(0).property.name);
+		assertEquals("width", rule.declarations.get(1).property.name);
+		assertEquals("p {\n  height: 2px;\n  width: 1px;\n}\n\n", new Generator().generate(new Evaluator().evaluate(ast)));
+	}
+
+	@Test
+	void testOperations() {
+		AST ast = checked("p { width: 2 * 3 * 4px - 1px; height: 50% + 25% * 2; color: #0a0b0c; }\n");
+		Stylerule rule = (Stylerule) ast.root.body.get(0);
+		Evaluator evaluator = new Evaluator();
+		assertEquals(new PixelLiteral(23), evaluator.evaluate(((Declaration) rule.body.get(0)).expression));
+		assertEquals(new PercentageLiteral(100), evaluator.evaluate(((Declaration) rule.body.get(1)).expression));
+		assertEquals(new ColorLiteral("#0a0b0c"), Values.toLiteral(Values.of((ColorLiteral) ((Declaration) rule.body.get(2)).expression)));
+		assertNull(evaluator.evaluate((Expression) new AddOperation().addChild(new PixelLiteral(10)).addChild(new PercentageLiteral(5))));
+	}
+}
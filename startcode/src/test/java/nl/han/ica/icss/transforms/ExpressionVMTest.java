@@ -0,0 +1,54 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionVMTest {
+
+	@Test
+	void testSameValuesAsEvaluator() {
+		for (int seed = 0; seed < 5; seed++) {
+			Pipeline pipeline = new Pipeline();
+			pipeline.parseString(new WorkloadGenerator(seed).setRules(0).setGlobals(300).setVariableDensity(0.8)
+					.setExpressionLength(6).generate());
+			assertTrue(pipeline.check());
+			List<VariableAssignment> assignments = new ArrayList<>();
+			for (ASTNode node : pipeline.getAST().root.body) {
+				assignments.add((VariableAssignment) node);
+			}
+
+			ExpressionCompiler compiler = new ExpressionCompiler();
+			ExpressionVM vm = new ExpressionVM();
+			vm.openScope();
+			List<Long> values = new ArrayList<>();
+			for (VariableAssignment assignment : assignments) {
+				long value = vm.run(compiler.compile(assignment.expression));
+				vm.assign(assignment.name.slot, value);
+				values.add(value);
+			}
+
+			pipeline.transform();
+			for (int i = 0; i < assignments.size(); i++) {
+				assertEquals(Values.of((Literal) assignments.get(i).expression), (long) values.get(i));
+			}
+		}
+	}
+
+	@Test
+	void testInvalidOperation() {
+		ExpressionCompiler compiler = new ExpressionCompiler();
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("p { width: 10px + 5%; height: 2 * 3 * 4px - 1px; }\n");
+		Stylerule rule = (Stylerule) pipeline.getAST().root.body.get(0);
+		ExpressionVM vm = new ExpressionVM();
+		assertEquals(Values.UNDEFINED, vm.run(compiler.compile(((Declaration) rule.body.get(0)).expression)));
+		assertEquals(Values.pack(Values.PIXEL, 23), vm.run(compiler.compile(((Declaration) rule.body.get(1)).expression)));
+	}
+}
@@ -0,0 +1,36 @@
+package nl.han.ica.icss.workload;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadGeneratorTest {
+
+	@Test
+	void testSameSeedSameOutput() {
+		String first = new WorkloadGenerator(7).setRules(50).generate();
+		String second = new WorkloadGenerator(7).setRules(50).generate();
+		assertEquals(first, second);
+		assertNotEquals(first, new WorkloadGenerator(8).setRules(50).generate());
+	}
+
+	@Test
+	void testGeneratedStylesheetsCompile() {
+		for (long seed = 0; seed < 20; seed++) {
+			String input = new WorkloadGenerator(seed)
+					.setRules(200)
+					.setNestingDepth(4)
+					.setExpressionLength(6)
+					.setVariableDensity(0.6)
+					.generate();
+
+			Pipeline pipeline = new Pipeline();
+			pipeline.parseString(input);
+			assertTrue(pipeline.isParsed(), () -> String.join("\n", pipeline.getErrors()));
+			assertTrue(pipeline.check(), () -> String.join("\n", pipeline.getErrors()));
+			pipeline.transform();
+			assertFalse(pipeline.generate().isEmpty());
+		}
+	}
+}